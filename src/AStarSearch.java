@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Description : A search algorithm which finds the shortest route to its target within its vision, walking around walls rather than into them.
+ * Here is how the algorithm operates :
+ * REQUESTS A VISION UPDATE (By the "LOOK" command) IF
+ * -The route planned from its last look has been walked to the end, since the target may have moved since.
+ * -The route is blocked: it does not stand where its last step should have taken it, because the move failed or something else moved it.
+ * MOVEMENT
+ * -After each look, runs A* from its position to the target over the tiles of its vision map, with a Manhattan heuristic, and keeps the whole route.
+ * -If it cannot see the target, it plans a route toward a random reachable tile of its vision instead.
+ * -Every later turn takes the next step of that route, without looking or searching again.
+ * Every buffer of the search is indexed by the local cell (y * width + x) and reused between calls, so the search itself allocates nothing. The open and closed sets are marked with a generation number, so they never need clearing.
+ */
+public class AStarSearch extends SearchAlgorithm {
+    /**
+     * Description : The cardinal directions, in the order in which neighbours are expanded.
+     */
+    private static final int[] DIRECTION_X = {0, 1, 0, -1};
+    private static final int[] DIRECTION_Y = {-1, 0, 1, 0};
+    /**
+     * Description : The cost from the start to each cell, and the direction of the step which entered it on the best route found to it.
+     */
+    private int[] cost = new int[0];
+    private int[] parent = new int[0];
+    /**
+     * Description : The generation in which each cell was last opened or closed. A cell is only open or closed if it matches the current generation.
+     */
+    private int[] opened = new int[0];
+    private int[] closed = new int[0];
+    private int generation = 0;
+    /**
+     * Description : A binary min heap of open cells, keyed on their estimated total cost.
+     */
+    private int[] heap_cells = new int[0];
+    private int[] heap_keys = new int[0];
+    private int heap_size = 0;
+    /**
+     * Description : The directions of the route planned from the last look, and the next one to take. route_planned is cleared by every look.
+     */
+    private int[] route = new int[0];
+    private int route_length = 0;
+    private int route_index = 0;
+    private boolean route_planned = false;
+    /**
+     * Description : Where the enemy should stand if its last step along the route succeeded.
+     */
+    private int expected_x = 0;
+    private int expected_y = 0;
+
+    /**
+     * Description : Constructor which asks for a target to seek.
+     *
+     * @param target The seeked target.
+     */
+    public AStarSearch(char target) {
+        super(target);
+    }
+
+    /**
+     * Description : Overrides the abstract base method and returns a command based on the route found to the target.
+     *
+     * @param start_position The start position of the entity in global coordinates.
+     * @return The verdict command of the search, for instance {"MOVE", "N"}.
+     */
+    @Override
+    public ArrayList<String> ExecuteSearch(Vector2 start_position) {
+        return BotAction.ToCommand(Decide(start_position.x, start_position.y));
+    }
+
+    /**
+     * Description : Returns the next step of the route planned from the last look, planning it first if this is the first turn since that look.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The packed action, for instance BotAction.Move(0) for "MOVE N".
+     */
+    @Override
+    public int Decide(int start_x, int start_y) {
+        if (requires_vision_update) return BotAction.LOOK;
+        if (!route_planned) {
+            PlanRoute(start_x, start_y);
+            route_planned = true;
+        }
+        //Explanation : The route is used up or blocked. Look again, and plan against where the target is now.
+        else if (route_index == route_length || start_x != expected_x || start_y != expected_y) {
+            requires_vision_update = true;
+            return BotAction.LOOK;
+        }
+        //Explanation : We cannot move at all, and so there is no action. Look again next turn, in case the way opens up.
+        if (route_length == 0) {
+            requires_vision_update = true;
+            return BotAction.NONE;
+        }
+        final int direction = route[route_index++];
+        expected_x = start_x + DIRECTION_X[direction];
+        expected_y = start_y + DIRECTION_Y[direction];
+        return BotAction.Move(direction);
+    }
+
+    /**
+     * Description : Takes the new vision map, and forgets the route planned from the previous one.
+     *
+     * @param subset Update value.
+     */
+    @Override
+    public void UpdateMapSubset(MapSubset subset) {
+        super.UpdateMapSubset(subset);
+        route_planned = false;
+        route_length = 0;
+        route_index = 0;
+    }
+
+    /**
+     * Description : Plans the route from the entity to the target over the current vision map, or toward a random tile of it if the target is not in sight.
+     */
+    private void PlanRoute(int start_x, int start_y) {
+        final int width = map_subset.subset_dim.x;
+        final int height = map_subset.subset_dim.y;
+        final int start = (start_y - map_subset.subset_world_top_left.y) * width + (start_x - map_subset.subset_world_top_left.x);
+        int goal = FindTarget(width, height);
+        if (goal == -1) goal = NextRandom(width * height);
+        local_target_position = new Vector2(goal % width, goal / width);
+        final int end = Search(start, goal, width);
+        //Explanation : Walk back from the end of the route to the start, writing the directions from the back of the route buffer forward.
+        route_length = 0;
+        for (int cell = end; cell != start; cell -= DIRECTION_Y[parent[cell]] * width + DIRECTION_X[parent[cell]]) ++route_length;
+        int slot = route_length;
+        for (int cell = end; cell != start; cell -= DIRECTION_Y[parent[cell]] * width + DIRECTION_X[parent[cell]]) route[--slot] = parent[cell];
+        route_index = 0;
+    }
+
+    /**
+     * @return The local cell of the target token, or -1 if it is not in sight.
+     */
+    private int FindTarget(int width, int height) {
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                if (map_subset.GetTile(x, y) == target_token) return y * width + x;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Description : Runs A* from the start cell to the goal cell, recording in parent the step which entered each cell on its best route.
+     * If the goal cannot be reached, the route to the reached cell closest to the goal is used instead.
+     *
+     * @return The cell the route ends on, which is the start cell if it has no traversable neighbour.
+     */
+    private int Search(int start, int goal, int width) {
+        Reserve(map_subset.subset_dim.x * map_subset.subset_dim.y);
+        //Explanation : Advancing the generation empties the open and closed sets in constant time.
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(opened, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        final int goal_x = goal % width;
+        final int goal_y = goal / width;
+        heap_size = 0;
+        cost[start] = 0;
+        parent[start] = -1;
+        opened[start] = generation;
+        Push(start, Manhattan(start % width, start / width, goal_x, goal_y));
+        int best = start;
+        int best_distance = Integer.MAX_VALUE;
+        while (heap_size > 0) {
+            final int cell = Pop();
+            if (closed[cell] == generation) continue;
+            closed[cell] = generation;
+            final int x = cell % width;
+            final int y = cell / width;
+            final int distance = Manhattan(x, y, goal_x, goal_y);
+            if (distance < best_distance && cell != start) {
+                best = cell;
+                best_distance = distance;
+            }
+            if (cell == goal) break;
+            for (int direction = 0; direction < 4; ++direction) {
+                final int next_x = x + DIRECTION_X[direction];
+                final int next_y = y + DIRECTION_Y[direction];
+                if (!map_subset.Contains(next_x, next_y)) continue;
+                final char tile = map_subset.GetTile(next_x, next_y);
+                if (map_subset.traversable_tiles.indexOf(tile) == -1 && tile != target_token) continue;
+                final int next = next_y * width + next_x;
+                if (closed[next] == generation) continue;
+                final int next_cost = cost[cell] + 1;
+                if (opened[next] == generation && cost[next] <= next_cost) continue;
+                opened[next] = generation;
+                cost[next] = next_cost;
+                parent[next] = direction;
+                Push(next, next_cost + Manhattan(next_x, next_y, goal_x, goal_y));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Description : Grows the buffers when the vision map is larger than any seen before.
+     */
+    private void Reserve(int n_cells) {
+        if (cost.length >= n_cells) return;
+        cost = new int[n_cells];
+        parent = new int[n_cells];
+        opened = new int[n_cells];
+        closed = new int[n_cells];
+        route = new int[n_cells];
+        //Explanation : A cell can be pushed once per neighbour that improves it, so the heap is sized for four entries per cell.
+        heap_cells = new int[n_cells * 4];
+        heap_keys = new int[n_cells * 4];
+        generation = 0;
+    }
+
+    private static int Manhattan(int x, int y, int goal_x, int goal_y) {
+        return Math.abs(goal_x - x) + Math.abs(goal_y - y);
+    }
+
+    /**
+     * Description : Adds a cell to the heap and sifts it up into place.
+     */
+    private void Push(int cell, int key) {
+        int child = heap_size++;
+        while (child > 0) {
+            final int parent_slot = (child - 1) >> 1;
+            if (heap_keys[parent_slot] <= key) break;
+            heap_cells[child] = heap_cells[parent_slot];
+            heap_keys[child] = heap_keys[parent_slot];
+            child = parent_slot;
+        }
+        heap_cells[child] = cell;
+        heap_keys[child] = key;
+    }
+
+    /**
+     * Description : Removes the cell with the lowest key from the heap, and sifts the last cell down into the gap.
+     */
+    private int Pop() {
+        final int top = heap_cells[0];
+        final int cell = heap_cells[--heap_size];
+        final int key = heap_keys[heap_size];
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= heap_size) break;
+            if (child + 1 < heap_size && heap_keys[child + 1] < heap_keys[child]) ++child;
+            if (heap_keys[child] >= key) break;
+            heap_cells[slot] = heap_cells[child];
+            heap_keys[slot] = heap_keys[child];
+            slot = child;
+        }
+        heap_cells[slot] = cell;
+        heap_keys[slot] = key;
+        return top;
+    }
+};
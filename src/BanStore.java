@@ -0,0 +1,205 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Banned addresses, checked on every accept.
+//Single addresses live in a hash set fronted by a Bloom filter, so the common case of a client that was never banned
+//is answered from a few bits. CIDR ranges live in a binary trie walked at most once per address bit.
+//Every ban is appended to a log file which is replayed when the store is created, so bans survive a restart.
+public final class BanStore
+{
+    private static final int bloom_bits = 1 << 20;
+    private static final int bloom_hashes = 3;
+
+    private static final class RangeNode
+    {
+        volatile RangeNode zero;
+        volatile RangeNode one;
+        volatile boolean banned;
+    }
+
+    private final Set<InetAddress> banned_addresses;
+    private final AtomicLongArray bloom;
+    private final RangeNode ipv4_ranges;
+    private final RangeNode ipv6_ranges;
+    private volatile boolean has_ranges;
+    private final ReentrantLock mutex;
+    private BufferedWriter log_writer;
+
+    public BanStore(File log_file)
+    {
+        this.banned_addresses = ConcurrentHashMap.newKeySet();
+        this.bloom = new AtomicLongArray(bloom_bits / 64);
+        this.ipv4_ranges = new RangeNode();
+        this.ipv6_ranges = new RangeNode();
+        this.has_ranges = false;
+        this.mutex = new ReentrantLock();
+        this.replay(log_file);
+        try
+        {
+            this.log_writer = new BufferedWriter(new FileWriter(log_file, true));
+        }
+        catch(IOException e)
+        {
+            Utility.print("Could not open the ban log " + log_file + ". Bans will not survive a restart.");
+        }
+    }
+    public boolean isBanned(InetAddress address)
+    {
+        byte[] bytes = address.getAddress();
+        if(this.mightContain(bytes) && this.banned_addresses.contains(address)) return true;
+        return this.has_ranges && this.inRange(bytes);
+    }
+    public void ban(InetAddress address)
+    {
+        this.ban(address, address.getAddress().length * 8);
+    }
+    //Bans every address sharing the first prefix_length bits with the given one.
+    public void ban(InetAddress address, int prefix_length)
+    {
+        this.mutex.lock();
+        try
+        {
+            if(!this.apply(address, prefix_length)) return;
+            boolean single_address = prefix_length == address.getAddress().length * 8;
+            this.append(single_address ? address.getHostAddress() : address.getHostAddress() + "/" + prefix_length);
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+    }
+    //Accepts "address" or "address/prefix_length".
+    public void ban(String entry) throws IOException
+    {
+        int slash = entry.indexOf('/');
+        InetAddress address = InetAddress.getByName((slash == -1) ? entry : entry.substring(0, slash));
+        if(slash == -1) this.ban(address);
+        else this.ban(address, Integer.parseInt(entry.substring(slash + 1)));
+    }
+
+    //Returns false if the ban was already present.
+    private boolean apply(InetAddress address, int prefix_length)
+    {
+        byte[] bytes = address.getAddress();
+        int address_bits = bytes.length * 8;
+        if(prefix_length < 0 || prefix_length > address_bits) throw new IllegalArgumentException("Prefix length " + prefix_length + " out of range for " + address.getHostAddress());
+        if(prefix_length == address_bits)
+        {
+            if(!this.banned_addresses.add(address)) return false;
+            long hash = Utility.Hash(bytes);
+            for(int i = 0; i < bloom_hashes; ++i) this.setBit(bloomIndex(hash, i));
+            return true;
+        }
+        RangeNode node = (bytes.length == 4) ? this.ipv4_ranges : this.ipv6_ranges;
+        for(int bit = 0; bit < prefix_length; ++bit)
+        {
+            if(node.banned) return false;
+            if(bitAt(bytes, bit) == 0)
+            {
+                if(node.zero == null) node.zero = new RangeNode();
+                node = node.zero;
+            }
+            else
+            {
+                if(node.one == null) node.one = new RangeNode();
+                node = node.one;
+            }
+        }
+        if(node.banned) return false;
+        node.banned = true;
+        this.has_ranges = true;
+        return true;
+    }
+    private boolean inRange(byte[] bytes)
+    {
+        RangeNode node = (bytes.length == 4) ? this.ipv4_ranges : this.ipv6_ranges;
+        int address_bits = bytes.length * 8;
+        for(int bit = 0; node != null; ++bit)
+        {
+            if(node.banned) return true;
+            if(bit == address_bits) return false;
+            node = (bitAt(bytes, bit) == 0) ? node.zero : node.one;
+        }
+        return false;
+    }
+    private boolean mightContain(byte[] bytes)
+    {
+        long hash = Utility.Hash(bytes);
+        for(int i = 0; i < bloom_hashes; ++i)
+        {
+            int index = bloomIndex(hash, i);
+            if((this.bloom.get(index >>> 6) & (1L << index)) == 0) return false;
+        }
+        return true;
+    }
+    private void setBit(int index)
+    {
+        long mask = 1L << index;
+        long word;
+        do
+        {
+            word = this.bloom.get(index >>> 6);
+            if((word & mask) != 0) return;
+        }
+        while(!this.bloom.compareAndSet(index >>> 6, word, word | mask));
+    }
+    private void append(String entry)
+    {
+        if(this.log_writer == null) return;
+        try
+        {
+            this.log_writer.write(entry);
+            this.log_writer.newLine();
+            this.log_writer.flush();
+        }
+        catch(IOException e)
+        {
+            Utility.print("Could not record ban of " + entry + ". It will not survive a restart.");
+        }
+    }
+    private void replay(File log_file)
+    {
+        if(!log_file.exists()) return;
+        int line_number = 0;
+        try(BufferedReader reader = new BufferedReader(new FileReader(log_file)))
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                ++line_number;
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) continue;
+                int slash = line.indexOf('/');
+                try
+                {
+                    InetAddress address = InetAddress.getByName((slash == -1) ? line : line.substring(0, slash));
+                    this.apply(address, (slash == -1) ? address.getAddress().length * 8 : Integer.parseInt(line.substring(slash + 1)));
+                }
+                catch(IOException | IllegalArgumentException e)
+                {
+                    Utility.print("Skipping malformed ban on line " + line_number + " of " + log_file + ".");
+                }
+            }
+        }
+        catch(IOException e)
+        {
+            Utility.print("Could not read the ban log " + log_file + ".");
+        }
+    }
+
+    private static int bitAt(byte[] bytes, int bit)
+    {
+        return (bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+    private static int bloomIndex(long hash, int i)
+    {
+        //Double hashing: the i-th probe is h1 + i * h2.
+        int h1 = (int)hash;
+        int h2 = (int)(hash >>> 32) | 1;
+        return (h1 + i * h2) & (bloom_bits - 1);
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.ArrayList;
+
+/**
+ * Description : Static helpers for the actions a bot hands to the game, packed into a single int : the opcode in the low byte, and the direction of a move in the byte above it.
+ * Bots act every round, so their actions never go through the string commands which humans type. The game applies them straight to its move and look handlers.
+ * The directions are numbered N, E, S, W, the same order in which the search algorithms expand neighbours.
+ */
+public final class BotAction {
+    /**
+     * Description : The opcodes. NONE is the action of a bot which cannot do anything this round.
+     */
+    public static final int NONE = 0;
+    public static final int LOOK = 1;
+    public static final int MOVE = 2;
+    private static final String DIRECTION_NAMES = "NESW";
+
+    /**
+     * Description : Not instantiable.
+     */
+    private BotAction() {
+    }
+
+    /**
+     * @param direction The index of the direction, 0 to 3 for N, E, S, W.
+     * @return The action moving one tile in that direction.
+     */
+    public static int Move(int direction) {
+        return MOVE | (direction << 8);
+    }
+
+    /**
+     * @param action The packed action.
+     * @return The opcode of the action.
+     */
+    public static int Opcode(int action) {
+        return action & 0xFF;
+    }
+
+    /**
+     * @param action The packed action.
+     * @return The index of the direction of a move.
+     */
+    public static int Direction(int action) {
+        return (action >> 8) & 0xFF;
+    }
+
+    /**
+     * @param direction The index of the direction.
+     * @return The offset along x.
+     */
+    public static int DirectionX(int direction) {
+        return (direction == 1) ? 1 : (direction == 3) ? -1 : 0;
+    }
+
+    /**
+     * @param direction The index of the direction.
+     * @return The offset along y.
+     */
+    public static int DirectionY(int direction) {
+        return (direction == 2) ? 1 : (direction == 0) ? -1 : 0;
+    }
+
+    /**
+     * Description : Reads a string command, for the search algorithms which still produce one. Anything a bot may not do reads as NONE.
+     *
+     * @param command The command, for instance {"MOVE","N"}.
+     * @return The packed action.
+     */
+    public static int FromCommand(ArrayList<String> command) {
+        if (command.size() == 1 && command.get(0).equals("LOOK")) return LOOK;
+        if (command.size() == 2 && command.get(0).equals("MOVE") && command.get(1).length() == 1) {
+            final int direction = DIRECTION_NAMES.indexOf(command.get(1).charAt(0));
+            if (direction != -1) return Move(direction);
+        }
+        return NONE;
+    }
+
+    /**
+     * Description : Writes an action as the string command it stands for, for the callers which still want one.
+     *
+     * @param action The packed action.
+     * @return The command, for instance {"MOVE","N"}, or an empty command for NONE.
+     */
+    public static ArrayList<String> ToCommand(int action) {
+        ArrayList<String> command = new ArrayList<String>();
+        if (Opcode(action) == LOOK) command.add("LOOK");
+        else if (Opcode(action) == MOVE) {
+            command.add("MOVE");
+            command.add(String.valueOf(DIRECTION_NAMES.charAt(Direction(action))));
+        }
+        return command;
+    }
+};
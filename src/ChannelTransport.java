@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+//Non blocking transport pinned to a single ServerEventLoop.
+//Reads and writes only ever happen on the loop thread; other threads queue packets on the handler and ask the loop to flush.
+public final class ChannelTransport implements PacketTransport
+{
+    private static final int INITIAL_READ_BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final ServerEventLoop event_loop;
+    private final InetSocketAddress remote_address;
+    private final PacketEncoder packet_encoder;
+    private ByteBuffer read_buffer;
+    private ByteBuffer current_write;
+    private OutboundQueue outbound_queue;
+    private SelectionKey key;
+    private SocketHandler handler;
+    private Server server;
+
+    public ChannelTransport(SocketChannel channel, ServerEventLoop event_loop) throws IOException
+    {
+        this.channel = channel;
+        this.event_loop = event_loop;
+        this.remote_address = (InetSocketAddress)channel.getRemoteAddress();
+        this.packet_encoder = new PacketEncoder();
+        this.read_buffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+        this.channel.configureBlocking(false);
+    }
+    public void bind(Server server, SocketHandler handler)
+    {
+        this.server = server;
+        this.handler = handler;
+    }
+    @Override
+    public void startWriter(OutboundQueue outbound_queue)
+    {
+        this.outbound_queue = outbound_queue;
+    }
+    @Override
+    public void wakeWriter()
+    {
+        if(this.channel.isOpen()) this.event_loop.requestFlush(this);
+    }
+    @Override
+    public Packet receive()
+    {
+        throw new IllegalStateException("Reactor connections are read by their event loop.");
+    }
+    @Override
+    public boolean isOpen()
+    {
+        return this.channel.isOpen();
+    }
+    @Override
+    public InetSocketAddress getRemoteAddress()
+    {
+        return this.remote_address;
+    }
+    @Override
+    public void close()
+    {
+        if(this.key != null) this.key.cancel();
+        try { this.channel.close(); }
+        catch(IOException e) { e.printStackTrace(); }
+    }
+
+    @Override
+    public void abandon()
+    {
+        this.event_loop.requestAbandon(this);
+    }
+
+    SocketChannel getChannel()
+    {
+        return this.channel;
+    }
+
+    //Everything below runs on the event loop thread.
+    void onRegistered(SelectionKey key)
+    {
+        this.key = key;
+        this.flush();
+    }
+    void onReadable()
+    {
+        try
+        {
+            if(this.channel.read(this.read_buffer) == -1)
+            {
+                this.onDisconnected();
+                return;
+            }
+            this.read_buffer.flip();
+            int frame_length;
+            while(this.handler.isRunning() && (frame_length = PacketEncoder.peekFrameLength(this.read_buffer)) != -1 && frame_length <= this.read_buffer.remaining())
+            {
+                this.handler.handlePacket(this.packet_encoder.decode(this.read_buffer));
+            }
+            frame_length = PacketEncoder.peekFrameLength(this.read_buffer);
+            this.read_buffer.compact();
+            //A frame larger than the buffer has started arriving. Grow to fit it.
+            if(frame_length > this.read_buffer.capacity())
+            {
+                ByteBuffer larger = ByteBuffer.allocate(frame_length);
+                this.read_buffer.flip();
+                larger.put(this.read_buffer);
+                this.read_buffer = larger;
+            }
+            //A terminated handler reads nothing more; the connection closes once its goodbye is written.
+            if(!this.handler.isRunning()) this.flush();
+        }
+        catch(IOException e)
+        {
+            this.onDisconnected();
+        }
+    }
+    void flush()
+    {
+        if(!this.channel.isOpen()) return;
+        try
+        {
+            while(true)
+            {
+                if(this.current_write == null)
+                {
+                    OutboundFrame frame = (this.outbound_queue == null) ? null : this.outbound_queue.poll();
+                    if(frame == null) break;
+                    this.current_write = frame.getBuffer(this.packet_encoder.getVersion());
+                }
+                this.channel.write(this.current_write);
+                if(this.current_write.hasRemaining())
+                {
+                    //Socket buffer is full. Wait for the selector to say we can write again.
+                    this.updateInterest(true);
+                    return;
+                }
+                this.current_write = null;
+            }
+            if(this.outbound_queue != null && this.outbound_queue.isDrained())
+            {
+                this.close();
+                return;
+            }
+            this.updateInterest(false);
+        }
+        catch(IOException e)
+        {
+            this.onDisconnected();
+        }
+    }
+    private void updateInterest(boolean writing)
+    {
+        if(this.key == null || !this.key.isValid()) return;
+        int interest = (this.handler == null || this.handler.isRunning()) ? SelectionKey.OP_READ : 0;
+        if(writing) interest |= SelectionKey.OP_WRITE;
+        this.key.interestOps(interest);
+    }
+    void onAbandoned()
+    {
+        this.current_write = null;
+        this.onDisconnected();
+    }
+    private void onDisconnected()
+    {
+        this.close();
+        if(this.handler == null) return;
+        this.handler.terminate();
+        try { this.server.removeClient(this.handler.getClientID(), false); }
+        catch(Exception e) { e.printStackTrace(); }
+    }
+}
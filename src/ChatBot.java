@@ -27,24 +27,23 @@ public class ChatBot extends Client
     {
         Client.receiverRun(receiver);
     }
-    public static void chatbotPacketHandler(Packet packet, PacketReceiver receiver)
-    {
-        try {
-            Client.clientPacketHandler(packet, receiver);
-            switch (packet.packet_type.toString())
-            {
-                case ("BROADCAST"):
+    private static final PacketDispatchTable<PacketHandler> chatbot_routes = new PacketDispatchTable<PacketHandler>()
+            .register((packet, receiver) -> {
+                try
                 {
                     String automated_response = ChatBot.getAutomatedResponse(packet.data);
                     ((ChatBot) receiver.getClient()).send(new Packet("Chatbot", automated_response, Packet.PacketType.MESSAGE, SenderType.BOTCLIENT));
-                    break;
                 }
-            }
-        }
-        catch(Exception e)
-        {
-            e.printStackTrace();
-        }
+                catch(Exception e)
+                {
+                    e.printStackTrace();
+                }
+            }, Packet.PacketType.BROADCAST);
+
+    public static void chatbotPacketHandler(Packet packet, PacketReceiver receiver)
+    {
+        Client.clientPacketHandler(packet, receiver);
+        Client.dispatch(chatbot_routes, packet, receiver);
     }
     public static void initialise_responses()
     {
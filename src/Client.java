@@ -12,9 +12,11 @@ public class Client {
     protected boolean on_server;
     protected boolean validated;
     protected ReentrantLock mutex;
+    protected PacketEncoder packet_encoder;
     Client(SenderType sender_type,InetSocketAddress server_config, ThreadRunner<PacketReceiver> input_run, PacketHandler server_packet_handler, ThreadRunner<PacketSender> output_run)
     {
         this.sender_type = sender_type;
+        this.packet_encoder = new PacketEncoder();
         try {
             this.connected_socket = new Socket(server_config.getAddress(), server_config.getPort());
         }
@@ -37,7 +39,7 @@ public class Client {
             Packet packet;
             while (listener.isRunning())
             {
-                packet = (Packet) listener.getReader().readObject();
+                packet = listener.receive();
                 if (packet == null) continue;
                 listener.handlePacket(packet);
                 packet = null;
@@ -66,19 +68,14 @@ public class Client {
         }
 
     }
-    public static void clientPacketHandler(Packet data, PacketReceiver listener)
-    {
-        Utility.print(data.getFormattedString());
-        //We need to send this packet to the input reader to handle.
-        switch(data.packet_type.toString())
-        {
-            case("CONNECT_GRANTED"):
-            {
+    //Routes shared by every client. Subclasses dispatch their own tables after this one.
+    protected static final PacketDispatchTable<PacketHandler> client_routes = new PacketDispatchTable<PacketHandler>()
+            .register((data, listener) -> {
+                //Switch codecs before the username prompt is released, so the validation request already uses it.
+                listener.getClient().getPacketEncoder().negotiate(data.codec_version);
                 listener.getClient().toggleOnServer();
-                break;
-            }
-            case("CONNECT_DENIED"):
-            case("DISCONNECT_GRANTED"): {
+            }, Packet.PacketType.CONNECT_GRANTED)
+            .register((data, listener) -> {
                 try
                 {
                     listener.getClient().stop();
@@ -87,22 +84,23 @@ public class Client {
                 {
                     e.printStackTrace();
                 }
-                break;
-            }
-            case("VALIDATION_GRANTED"):
-            {
-                listener.getClient().toggleValidated();
-                break;
-            }
-            case("VALIDATION_DENIED"):
-            {
-                break;
-            }
-            case("BROADCAST"):
-            {
-                break;
-            }
-        }
+            }, Packet.PacketType.CONNECT_DENIED, Packet.PacketType.DISCONNECT_GRANTED)
+            .register((data, listener) -> listener.getClient().toggleValidated(), Packet.PacketType.VALIDATION_GRANTED);
+
+    public static void clientPacketHandler(Packet data, PacketReceiver listener)
+    {
+        Utility.print(data.getFormattedString());
+        //We need to send this packet to the input reader to handle.
+        dispatch(client_routes, data, listener);
+    }
+    protected static void dispatch(PacketDispatchTable<PacketHandler> routes, Packet data, PacketReceiver listener)
+    {
+        PacketHandler handler = routes.get(data.packet_type);
+        if(handler != null) handler.handlePacket(data, listener);
+    }
+    public PacketEncoder getPacketEncoder()
+    {
+        return this.packet_encoder;
     }
     public Socket getConnectedSocket()
     {
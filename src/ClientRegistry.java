@@ -0,0 +1,93 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Every connected SocketHandler, indexed by client ID and by username.
+//Lookups are lock free. Broadcasts iterate an immutable snapshot that is rebuilt lazily after the membership changes,
+//so a burst of connects costs O(1) each and the next broadcast pays for one copy.
+//The snapshot is only ever built and invalidated under snapshot_mutex, so a rebuild racing a membership change
+//can never publish a copy that misses it.
+public final class ClientRegistry
+{
+    private final ConcurrentHashMap<Integer, SocketHandler> clients_by_ID;
+    private final ConcurrentHashMap<String, SocketHandler> clients_by_name;
+    private final AtomicInteger max_client_ID;
+    private final ReentrantLock snapshot_mutex;
+    private volatile SocketHandler[] snapshot;
+
+    public ClientRegistry()
+    {
+        this.clients_by_ID = new ConcurrentHashMap<>();
+        this.clients_by_name = new ConcurrentHashMap<>();
+        this.max_client_ID = new AtomicInteger(0);
+        this.snapshot_mutex = new ReentrantLock();
+        this.snapshot = new SocketHandler[0];
+    }
+    public int nextClientID()
+    {
+        return this.max_client_ID.incrementAndGet();
+    }
+    public void add(SocketHandler handler)
+    {
+        this.clients_by_ID.put(handler.getClientID(), handler);
+        this.invalidateSnapshot();
+    }
+    //Returns true for exactly one caller, however many threads race to remove the same client.
+    public boolean remove(SocketHandler handler)
+    {
+        if(!this.clients_by_ID.remove(handler.getClientID(), handler)) return false;
+        this.clients_by_name.remove(handler.getClientName(), handler);
+        this.invalidateSnapshot();
+        return true;
+    }
+    //Called after the maps have changed. Any rebuild holding the lock already has finished publishing, and any later one sees the change.
+    private void invalidateSnapshot()
+    {
+        this.snapshot_mutex.lock();
+        try { this.snapshot = null; }
+        finally { this.snapshot_mutex.unlock(); }
+    }
+    public SocketHandler get(int client_ID)
+    {
+        return this.clients_by_ID.get(client_ID);
+    }
+    public SocketHandler get(String client_name)
+    {
+        return this.clients_by_name.get(client_name);
+    }
+    //Atomically reserves the name for this handler and releases whatever name it held before.
+    //Returns false if another client already owns the name.
+    public boolean claimName(SocketHandler handler, String client_name)
+    {
+        SocketHandler owner = this.clients_by_name.putIfAbsent(client_name, handler);
+        if(owner != null && owner != handler) return false;
+        String previous_name = handler.getClientName();
+        if(!previous_name.equals(client_name)) this.clients_by_name.remove(previous_name, handler);
+        //The client may have been removed while we were claiming; don't leave its name behind.
+        if(this.clients_by_ID.get(handler.getClientID()) != handler)
+        {
+            this.clients_by_name.remove(client_name, handler);
+            return false;
+        }
+        return true;
+    }
+    public SocketHandler[] snapshot()
+    {
+        SocketHandler[] current = this.snapshot;
+        if(current != null) return current;
+        this.snapshot_mutex.lock();
+        try
+        {
+            if(this.snapshot == null) this.snapshot = this.clients_by_ID.values().toArray(new SocketHandler[0]);
+            return this.snapshot;
+        }
+        finally
+        {
+            this.snapshot_mutex.unlock();
+        }
+    }
+    public int size()
+    {
+        return this.clients_by_ID.size();
+    }
+}
@@ -0,0 +1,437 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Description : The abstract graph used for hierarchical path finding (HPA*) on large maps.
+ * The map is split into square clusters. Wherever two neighbouring clusters share a run of open tiles along their border, an
+ * entrance is placed in that run, as a node on either side joined by a single step. Within each cluster, every pair of nodes is
+ * joined by the length of the shortest route between them that stays inside the cluster.
+ * A route across the map is then a search over these few nodes rather than over every tile, and the tiles between two nodes
+ * only need to be found when the route actually gets there.
+ * The graph only depends on the walls of the map, so it is built once per MapTemplate and shared by every game on that map.
+ * It is never modified after construction; the working memory of each search lives in a Query owned by the searcher.
+ */
+public final class ClusterGraph {
+    /**
+     * Description : The width and height of a cluster, in tiles.
+     */
+    public static final int CLUSTER_SIZE = 16;
+    /**
+     * Description : Runs of open border at least this long get an entrance at each end rather than one in the middle.
+     */
+    private static final int WIDE_ENTRANCE = 6;
+    private static final int[] DIRECTION_X = {0, 1, 0, -1};
+    private static final int[] DIRECTION_Y = {-1, 0, 1, 0};
+
+    private final int width;
+    private final int height;
+    private final int clusters_x;
+    /**
+     * Description : Whether each tile, indexed by y * width + x, can be walked on.
+     */
+    private final boolean[] traversable;
+    /**
+     * Description : The tile of each node, and the nodes of each cluster in [cluster_node_start[c], cluster_node_start[c + 1]).
+     */
+    private final int[] node_cells;
+    private final int[] cluster_node_start;
+    private final int[] cluster_nodes;
+    /**
+     * Description : The edges of each node in [edge_start[n], edge_start[n + 1]), as a target node and a cost in steps.
+     */
+    private final int[] edge_start;
+    private final int[] edge_targets;
+    private final int[] edge_costs;
+    /**
+     * Description : The working memory of each thread searching this graph. A query holds nothing between calls, so one per thread is enough.
+     */
+    private final ThreadLocal<Query> queries = ThreadLocal.withInitial(this::CreateQuery);
+
+    /**
+     * Description : The working memory of one search at a time. Each thread keeps its own, since the graph is shared between threads.
+     * Per node arrays have room for two extra nodes, standing for the start and the goal of the search.
+     */
+    public static final class Query {
+        private final int[] cost;
+        private final int[] parent;
+        private final int[] opened;
+        private final int[] closed;
+        private final int[] heap_nodes;
+        private final int[] heap_keys;
+        private int heap_size = 0;
+        private int generation = 0;
+        /**
+         * Description : Breadth first search within one cluster, indexed by tile within the cluster.
+         */
+        private final int[] local_distance;
+        private final int[] local_first_step;
+        private final int[] local_reached;
+        private final int[] local_queue;
+        private int local_generation = 0;
+        /**
+         * Description : The distance from each node of the goal's cluster to the goal, stamped with the generation of the search.
+         */
+        private final int[] goal_cost;
+        private final int[] goal_reached;
+
+        private Query(int n_nodes, int heap_capacity) {
+            this.cost = new int[n_nodes + 2];
+            this.parent = new int[n_nodes + 2];
+            this.opened = new int[n_nodes + 2];
+            this.closed = new int[n_nodes + 2];
+            this.heap_nodes = new int[heap_capacity];
+            this.heap_keys = new int[heap_capacity];
+            this.goal_cost = new int[n_nodes];
+            this.goal_reached = new int[n_nodes];
+            this.local_distance = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+            this.local_first_step = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+            this.local_reached = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+            this.local_queue = new int[CLUSTER_SIZE * CLUSTER_SIZE];
+        }
+    }
+
+    /**
+     * Description : Builds the graph from the tiles of a map.
+     *
+     * @param template          The map.
+     * @param traversable_tiles The tiles which can be walked on.
+     */
+    ClusterGraph(MapTemplate template, String traversable_tiles) {
+        this.width = template.GetWidth();
+        this.height = template.GetHeight();
+        this.clusters_x = (this.width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        final int clusters_y = (this.height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.traversable = new boolean[this.width * this.height];
+        for (int y = 0; y < this.height; ++y) {
+            for (int x = 0; x < this.width; ++x) {
+                this.traversable[y * this.width + x] = traversable_tiles.indexOf(template.GetTile(x, y)) != -1;
+            }
+        }
+        //Explanation : Find the entrances along every border between two clusters. Each entrance adds a node on both sides, unless one is already there.
+        int[] node_of_cell = new int[this.width * this.height];
+        Arrays.fill(node_of_cell, -1);
+        ArrayList<Integer> cells = new ArrayList<>();
+        ArrayList<int[]> links = new ArrayList<>();
+        for (int cy = 0; cy < clusters_y; ++cy) {
+            for (int cx = 0; cx < this.clusters_x; ++cx) {
+                final int left = cx * CLUSTER_SIZE;
+                final int top = cy * CLUSTER_SIZE;
+                final int right = Math.min(left + CLUSTER_SIZE, this.width) - 1;
+                final int bottom = Math.min(top + CLUSTER_SIZE, this.height) - 1;
+                //Explanation : The border with the cluster to the east, then the border with the cluster to the south.
+                if (right + 1 < this.width) this.FindEntrances(right, top, 0, 1, bottom - top + 1, 1, 0, node_of_cell, cells, links);
+                if (bottom + 1 < this.height) this.FindEntrances(left, bottom, 1, 0, right - left + 1, 0, 1, node_of_cell, cells, links);
+            }
+        }
+        final int n_nodes = cells.size();
+        this.node_cells = new int[n_nodes];
+        for (int node = 0; node < n_nodes; ++node) this.node_cells[node] = cells.get(node);
+        //Explanation : Group the nodes by cluster.
+        final int n_clusters = this.clusters_x * clusters_y;
+        this.cluster_node_start = new int[n_clusters + 1];
+        for (int node = 0; node < n_nodes; ++node) ++this.cluster_node_start[this.ClusterOf(this.node_cells[node]) + 1];
+        for (int cluster = 0; cluster < n_clusters; ++cluster) this.cluster_node_start[cluster + 1] += this.cluster_node_start[cluster];
+        this.cluster_nodes = new int[n_nodes];
+        int[] fill = Arrays.copyOf(this.cluster_node_start, n_clusters);
+        for (int node = 0; node < n_nodes; ++node) this.cluster_nodes[fill[this.ClusterOf(this.node_cells[node])]++] = node;
+        //Explanation : Join the nodes of each cluster by the length of their shortest route within it.
+        //Explanation : Only the breadth first search of the query is needed here, so it gets no heap.
+        Query query = new Query(n_nodes, 0);
+        for (int node = 0; node < n_nodes; ++node) {
+            final int cluster = this.ClusterOf(this.node_cells[node]);
+            this.SearchCluster(this.node_cells[node], query);
+            for (int i = this.cluster_node_start[cluster]; i < this.cluster_node_start[cluster + 1]; ++i) {
+                final int other = this.cluster_nodes[i];
+                if (other == node) continue;
+                final int distance = this.LocalDistance(this.node_cells[other], query);
+                if (distance != -1) links.add(new int[]{node, other, distance});
+            }
+        }
+        //Explanation : Pack the edges by source node.
+        this.edge_start = new int[n_nodes + 1];
+        for (int[] link : links) ++this.edge_start[link[0] + 1];
+        for (int node = 0; node < n_nodes; ++node) this.edge_start[node + 1] += this.edge_start[node];
+        this.edge_targets = new int[links.size()];
+        this.edge_costs = new int[links.size()];
+        fill = Arrays.copyOf(this.edge_start, n_nodes);
+        for (int[] link : links) {
+            final int slot = fill[link[0]]++;
+            this.edge_targets[slot] = link[1];
+            this.edge_costs[slot] = link[2];
+        }
+    }
+
+    /**
+     * Description : Walks a cluster border, and places entrances on the runs of tiles which are open on both sides.
+     *
+     * @param x      The first tile on the near side of the border.
+     * @param y      The first tile on the near side of the border.
+     * @param step_x The step along the border.
+     * @param step_y The step along the border.
+     * @param length The length of the border.
+     * @param across_x The step across the border.
+     * @param across_y The step across the border.
+     */
+    private void FindEntrances(int x, int y, int step_x, int step_y, int length, int across_x, int across_y, int[] node_of_cell, ArrayList<Integer> cells, ArrayList<int[]> links) {
+        int run_start = -1;
+        for (int i = 0; i <= length; ++i) {
+            final int near = (y + i * step_y) * this.width + (x + i * step_x);
+            final boolean open = i < length && this.traversable[near] && this.traversable[near + across_y * this.width + across_x];
+            if (open && run_start == -1) run_start = i;
+            if (open || run_start == -1) continue;
+            //Explanation : The run has ended. Short runs get one entrance in the middle, wide ones one at each end.
+            final int run_end = i - 1;
+            if (run_end - run_start + 1 >= WIDE_ENTRANCE) {
+                this.AddEntrance(x + run_start * step_x, y + run_start * step_y, across_x, across_y, node_of_cell, cells, links);
+                this.AddEntrance(x + run_end * step_x, y + run_end * step_y, across_x, across_y, node_of_cell, cells, links);
+            } else {
+                final int middle = (run_start + run_end) / 2;
+                this.AddEntrance(x + middle * step_x, y + middle * step_y, across_x, across_y, node_of_cell, cells, links);
+            }
+            run_start = -1;
+        }
+    }
+
+    private void AddEntrance(int x, int y, int across_x, int across_y, int[] node_of_cell, ArrayList<Integer> cells, ArrayList<int[]> links) {
+        final int near = y * this.width + x;
+        final int far = near + across_y * this.width + across_x;
+        for (int cell : new int[]{near, far}) {
+            if (node_of_cell[cell] != -1) continue;
+            node_of_cell[cell] = cells.size();
+            cells.add(cell);
+        }
+        links.add(new int[]{node_of_cell[near], node_of_cell[far], 1});
+        links.add(new int[]{node_of_cell[far], node_of_cell[near], 1});
+    }
+
+    /**
+     * @return The working memory of the calling thread for searching this graph.
+     */
+    public Query GetQuery() {
+        return this.queries.get();
+    }
+
+    /**
+     * @return Fresh working memory for searching this graph.
+     */
+    private Query CreateQuery() {
+        //Explanation : A node enters the heap at most once per edge leading to it, plus the edges of the start and goal.
+        return new Query(this.node_cells.length, this.edge_targets.length + 2 * this.node_cells.length + 2);
+    }
+
+    /**
+     * @return The number of nodes in the graph.
+     */
+    public int GetNodeCount() {
+        return this.node_cells.length;
+    }
+
+    /**
+     * @param cell The tile, as y * width + x.
+     * @return The cluster the tile belongs to.
+     */
+    public int ClusterOf(int cell) {
+        return ((cell / this.width) / CLUSTER_SIZE) * this.clusters_x + (cell % this.width) / CLUSTER_SIZE;
+    }
+
+    /**
+     * @return The width of the map, for converting between positions and tiles.
+     */
+    public int GetWidth() {
+        return this.width;
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return Whether the tile lies on the map and can be walked on.
+     */
+    public boolean IsTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height && this.traversable[y * this.width + x];
+    }
+
+    /**
+     * Description : Finds the abstract route from one tile to another: the tiles of the nodes to pass through, in order.
+     * The start and goal are joined to the nodes of their own clusters for this search only, and directly to each other when they share a cluster.
+     *
+     * @param start_cell The tile to start from.
+     * @param goal_cell  The tile to reach.
+     * @param query      The working memory of the calling thread.
+     * @param route      Receives the tiles of the nodes along the route, excluding the start and ending with the goal. Must have room for every node plus one.
+     * @return The number of tiles written to route, or -1 if the goal cannot be reached.
+     */
+    public int FindRoute(int start_cell, int goal_cell, Query query, int[] route) {
+        final int n_nodes = this.node_cells.length;
+        final int start = n_nodes;
+        final int goal = n_nodes + 1;
+        final int start_cluster = this.ClusterOf(start_cell);
+        final int goal_cluster = this.ClusterOf(goal_cell);
+        if (++query.generation == Integer.MAX_VALUE) {
+            Arrays.fill(query.opened, 0);
+            Arrays.fill(query.closed, 0);
+            Arrays.fill(query.goal_reached, 0);
+            query.generation = 1;
+        }
+        //Explanation : Distances from the goal to the nodes of its cluster, read when those nodes are expanded.
+        this.SearchCluster(goal_cell, query);
+        for (int i = this.cluster_node_start[goal_cluster]; i < this.cluster_node_start[goal_cluster + 1]; ++i) {
+            final int node = this.cluster_nodes[i];
+            final int distance = this.LocalDistance(this.node_cells[node], query);
+            if (distance == -1) continue;
+            query.goal_cost[node] = distance;
+            query.goal_reached[node] = query.generation;
+        }
+        //Explanation : Distances from the start to the nodes of its cluster, and to the goal if it is in the same cluster, seed the search.
+        this.SearchCluster(start_cell, query);
+        query.heap_size = 0;
+        query.cost[start] = 0;
+        query.opened[start] = query.generation;
+        query.closed[start] = query.generation;
+        if (start_cluster == goal_cluster) {
+            final int distance = this.LocalDistance(goal_cell, query);
+            if (distance != -1) this.Relax(query, start, goal, distance, goal_cell, goal_cell);
+        }
+        for (int i = this.cluster_node_start[start_cluster]; i < this.cluster_node_start[start_cluster + 1]; ++i) {
+            final int node = this.cluster_nodes[i];
+            final int distance = this.LocalDistance(this.node_cells[node], query);
+            if (distance != -1) this.Relax(query, start, node, distance, this.node_cells[node], goal_cell);
+        }
+        while (query.heap_size > 0) {
+            final int node = Pop(query);
+            if (query.closed[node] == query.generation) continue;
+            query.closed[node] = query.generation;
+            if (node == goal) break;
+            if (query.goal_reached[node] == query.generation) this.Relax(query, node, goal, query.goal_cost[node], goal_cell, goal_cell);
+            for (int edge = this.edge_start[node]; edge < this.edge_start[node + 1]; ++edge) {
+                final int next = this.edge_targets[edge];
+                if (query.closed[next] == query.generation) continue;
+                this.Relax(query, node, next, this.edge_costs[edge], this.node_cells[next], goal_cell);
+            }
+        }
+        if (query.closed[goal] != query.generation) return -1;
+        //Explanation : Walk the parents back from the goal, then reverse them into route order.
+        int length = 0;
+        for (int node = goal; node != start; node = query.parent[node]) route[length++] = (node == goal) ? goal_cell : this.node_cells[node];
+        for (int i = 0, j = length - 1; i < j; ++i, --j) {
+            final int swap = route[i];
+            route[i] = route[j];
+            route[j] = swap;
+        }
+        return length;
+    }
+
+    /**
+     * Description : Finds the first step from one tile toward another in the same cluster, along the shortest route within that cluster.
+     * This is how an abstract route is refined into moves, one stretch at a time, as the searcher walks it.
+     *
+     * @param from_cell The tile to step from.
+     * @param to_cell   The tile to head for. Must be in the same cluster as from_cell.
+     * @param query     The working memory of the calling thread.
+     * @return The index of the direction to step in (north, east, south, west), or -1 if the tile cannot be reached within the cluster.
+     */
+    public int StepWithinCluster(int from_cell, int to_cell, Query query) {
+        if (from_cell == to_cell || this.ClusterOf(from_cell) != this.ClusterOf(to_cell)) return -1;
+        this.SearchCluster(from_cell, query);
+        return (this.LocalDistance(to_cell, query) == -1) ? -1 : query.local_first_step[this.LocalIndex(to_cell)];
+    }
+
+    /**
+     * Description : Relaxes an edge of the abstract search, opening the target node if this is the cheapest way found to it.
+     */
+    private void Relax(Query query, int from, int to, int edge_cost, int to_cell, int goal_cell) {
+        final int cost = query.cost[from] + edge_cost;
+        if (query.opened[to] == query.generation && query.cost[to] <= cost) return;
+        query.opened[to] = query.generation;
+        query.cost[to] = cost;
+        query.parent[to] = from;
+        final int heuristic = Math.abs(to_cell % this.width - goal_cell % this.width) + Math.abs(to_cell / this.width - goal_cell / this.width);
+        Push(query, to, cost + heuristic);
+    }
+
+    /**
+     * Description : Breadth first search from a tile over its own cluster, recording the distance of every tile reached and the first step taken toward it.
+     */
+    private void SearchCluster(int from_cell, Query query) {
+        if (++query.local_generation == Integer.MAX_VALUE) {
+            Arrays.fill(query.local_reached, 0);
+            query.local_generation = 1;
+        }
+        final int left = ((from_cell % this.width) / CLUSTER_SIZE) * CLUSTER_SIZE;
+        final int top = ((from_cell / this.width) / CLUSTER_SIZE) * CLUSTER_SIZE;
+        final int right = Math.min(left + CLUSTER_SIZE, this.width) - 1;
+        final int bottom = Math.min(top + CLUSTER_SIZE, this.height) - 1;
+        int queue_head = 0;
+        int queue_tail = 0;
+        final int origin = this.LocalIndex(from_cell);
+        query.local_reached[origin] = query.local_generation;
+        query.local_distance[origin] = 0;
+        query.local_first_step[origin] = -1;
+        query.local_queue[queue_tail++] = from_cell;
+        while (queue_head < queue_tail) {
+            final int cell = query.local_queue[queue_head++];
+            final int local = this.LocalIndex(cell);
+            final int x = cell % this.width;
+            final int y = cell / this.width;
+            for (int direction = 0; direction < 4; ++direction) {
+                final int next_x = x + DIRECTION_X[direction];
+                final int next_y = y + DIRECTION_Y[direction];
+                if (next_x < left || next_x > right || next_y < top || next_y > bottom) continue;
+                final int next = next_y * this.width + next_x;
+                if (!this.traversable[next]) continue;
+                final int next_local = this.LocalIndex(next);
+                if (query.local_reached[next_local] == query.local_generation) continue;
+                query.local_reached[next_local] = query.local_generation;
+                query.local_distance[next_local] = query.local_distance[local] + 1;
+                query.local_first_step[next_local] = (cell == from_cell) ? direction : query.local_first_step[local];
+                query.local_queue[queue_tail++] = next;
+            }
+        }
+    }
+
+    /**
+     * @return The distance found by the last SearchCluster to a tile of the same cluster, or -1 if it was not reached.
+     */
+    private int LocalDistance(int cell, Query query) {
+        final int local = this.LocalIndex(cell);
+        return (query.local_reached[local] == query.local_generation) ? query.local_distance[local] : -1;
+    }
+
+    /**
+     * @return The index of a tile within its cluster.
+     */
+    private int LocalIndex(int cell) {
+        return ((cell / this.width) % CLUSTER_SIZE) * CLUSTER_SIZE + (cell % this.width) % CLUSTER_SIZE;
+    }
+
+    private static void Push(Query query, int node, int key) {
+        int child = query.heap_size++;
+        while (child > 0) {
+            final int parent_slot = (child - 1) >> 1;
+            if (query.heap_keys[parent_slot] <= key) break;
+            query.heap_nodes[child] = query.heap_nodes[parent_slot];
+            query.heap_keys[child] = query.heap_keys[parent_slot];
+            child = parent_slot;
+        }
+        query.heap_nodes[child] = node;
+        query.heap_keys[child] = key;
+    }
+
+    private static int Pop(Query query) {
+        final int top = query.heap_nodes[0];
+        final int node = query.heap_nodes[--query.heap_size];
+        final int key = query.heap_keys[query.heap_size];
+        int slot = 0;
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= query.heap_size) break;
+            if (child + 1 < query.heap_size && query.heap_keys[child + 1] < query.heap_keys[child]) ++child;
+            if (query.heap_keys[child] >= key) break;
+            query.heap_nodes[slot] = query.heap_nodes[child];
+            query.heap_keys[slot] = query.heap_keys[child];
+            slot = child;
+        }
+        query.heap_nodes[slot] = node;
+        query.heap_keys[slot] = key;
+        return top;
+    }
+};
@@ -0,0 +1,86 @@
+/**
+ * Description : Static helpers for positions packed into a single long, the x coordinate in the high 32 bits and the y coordinate in the low 32 bits.
+ * Packed positions are plain values, so they can be passed around, stored and compared on hot paths without allocating.
+ * Vector2 remains for the code which still wants an object; ToVector2 and FromVector2 convert between the two.
+ */
+public final class Coord {
+    /**
+     * Description : A packed value which no position on a map packs to, used for "no position".
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Description : Not instantiable.
+     */
+    private Coord() {
+    }
+
+    /**
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @return The packed position.
+     */
+    public static long Pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param coord The packed position.
+     * @return The x coordinate.
+     */
+    public static int X(long coord) {
+        return (int) (coord >> 32);
+    }
+
+    /**
+     * @param coord The packed position.
+     * @return The y coordinate.
+     */
+    public static int Y(long coord) {
+        return (int) coord;
+    }
+
+    /**
+     * @param coord The packed position.
+     * @param dx    The offset along x.
+     * @param dy    The offset along y.
+     * @return The packed position moved by the offset.
+     */
+    public static long Offset(long coord, int dx, int dy) {
+        return Pack(X(coord) + dx, Y(coord) + dy);
+    }
+
+    /**
+     * @param vec The position as a vector.
+     * @return The packed position.
+     */
+    public static long FromVector2(Vector2 vec) {
+        return Pack(vec.x, vec.y);
+    }
+
+    /**
+     * @param coord The packed position.
+     * @return A new vector holding the position.
+     */
+    public static Vector2 ToVector2(long coord) {
+        return new Vector2(X(coord), Y(coord));
+    }
+
+    /**
+     * Description : The offset along x of a cardinal character, without allocating a vector as Utility.CardinalToVector2 does.
+     *
+     * @param cardinal The cardinal character.
+     * @return The offset along x.
+     */
+    public static int CardinalX(char cardinal) {
+        return (cardinal == 'E') ? 1 : (cardinal == 'W') ? -1 : 0;
+    }
+
+    /**
+     * @param cardinal The cardinal character.
+     * @return The offset along y.
+     */
+    public static int CardinalY(char cardinal) {
+        return (cardinal == 'S') ? 1 : (cardinal == 'N') ? -1 : 0;
+    }
+};
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * Description : A map of how many steps separate each cell from the nearest hero, shared by every enemy of a game.
+ * The field is filled by a breadth first search outward from the heroes, over traversable tiles only, and stops after a
+ * fixed number of steps so that a hero on a large map only pays for the region around them. It is only rebuilt when a hero
+ * has moved, so however many enemies read it, a round costs at most one search.
+ * Cells are indexed by y * width + x, and each cell records the generation of the search which reached it, so nothing is cleared between searches.
+ */
+public final class DistanceField {
+    /**
+     * Description : The distance reported for a cell which the last search did not reach.
+     */
+    public static final int UNREACHED = Integer.MAX_VALUE;
+    /**
+     * Description : How many steps from the heroes the search spreads before it stops.
+     */
+    private final int max_distance;
+    private final int width;
+    private final int height;
+    /**
+     * Description : Whether each cell can be walked on. Read once from the map, since walls never change during a game.
+     */
+    private final boolean[] traversable;
+    private final int[] distance;
+    private final int[] reached;
+    private int generation = 0;
+    /**
+     * Description : The queue of the breadth first search, reused between searches. Every cell enters it at most once.
+     */
+    private final int[] queue;
+    /**
+     * Description : The hero cells the field was last built from.
+     */
+    private int[] sources = new int[0];
+    private int n_sources = 0;
+
+    /**
+     * Description : Creates an empty field over the loaded map of a game.
+     *
+     * @param map_manager  The map manager of the game.
+     * @param max_distance How many steps from the heroes the field extends.
+     */
+    public DistanceField(MapManager map_manager, int max_distance) {
+        this.max_distance = max_distance;
+        Vector2 map_dim = map_manager.GetMapDimensions();
+        this.width = map_dim.x;
+        this.height = map_dim.y;
+        this.traversable = new boolean[this.width * this.height];
+        final String traversable_tiles = map_manager.GetTraversableTiles();
+        for (int y = 0; y < this.height; ++y) {
+            for (int x = 0; x < this.width; ++x) {
+                this.traversable[y * this.width + x] = traversable_tiles.indexOf(map_manager.GetTile(x, y)) != -1;
+            }
+        }
+        this.distance = new int[this.width * this.height];
+        this.reached = new int[this.width * this.height];
+        this.queue = new int[this.width * this.height];
+    }
+
+    /**
+     * Description : Rebuilds the field from the current hero positions, unless no hero has moved since it was last built.
+     *
+     * @param hero_cells   The cell index of each hero.
+     * @param n_hero_cells The number of heroes.
+     */
+    public void Update(int[] hero_cells, int n_hero_cells) {
+        if (n_hero_cells == this.n_sources && Arrays.equals(hero_cells, 0, n_hero_cells, this.sources, 0, this.n_sources)) return;
+        this.sources = Arrays.copyOf(hero_cells, n_hero_cells);
+        this.n_sources = n_hero_cells;
+        //Explanation : Advancing the generation forgets every cell of the previous search in constant time.
+        if (++this.generation == Integer.MAX_VALUE) {
+            Arrays.fill(this.reached, 0);
+            this.generation = 1;
+        }
+        int queue_head = 0;
+        int queue_tail = 0;
+        for (int i = 0; i < n_hero_cells; ++i) {
+            final int cell = hero_cells[i];
+            if (this.reached[cell] == this.generation) continue;
+            this.reached[cell] = this.generation;
+            this.distance[cell] = 0;
+            this.queue[queue_tail++] = cell;
+        }
+        while (queue_head < queue_tail) {
+            final int cell = this.queue[queue_head++];
+            final int next_distance = this.distance[cell] + 1;
+            if (next_distance > this.max_distance) continue;
+            final int x = cell % this.width;
+            final int y = cell / this.width;
+            if (y > 0) queue_tail = this.Visit(cell - this.width, next_distance, queue_tail);
+            if (x < this.width - 1) queue_tail = this.Visit(cell + 1, next_distance, queue_tail);
+            if (y < this.height - 1) queue_tail = this.Visit(cell + this.width, next_distance, queue_tail);
+            if (x > 0) queue_tail = this.Visit(cell - 1, next_distance, queue_tail);
+        }
+    }
+
+    /**
+     * Description : Records the distance of a neighbour the first time the search reaches it, and queues it.
+     *
+     * @return The new tail of the queue.
+     */
+    private int Visit(int cell, int cell_distance, int queue_tail) {
+        if (!this.traversable[cell] || this.reached[cell] == this.generation) return queue_tail;
+        this.reached[cell] = this.generation;
+        this.distance[cell] = cell_distance;
+        this.queue[queue_tail] = cell;
+        return queue_tail + 1;
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return The number of steps from the cell to the nearest hero, or UNREACHED if it is out of the map, a wall, or too far away.
+     */
+    public int GetDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= this.width || y >= this.height) return UNREACHED;
+        final int cell = y * this.width + x;
+        return (this.reached[cell] == this.generation) ? this.distance[cell] : UNREACHED;
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return Whether the cell lies on the map and can be walked on.
+     */
+    public boolean IsTraversable(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height && this.traversable[y * this.width + x];
+    }
+};
@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+//The DoD clients currently connected, and which of them hosts each user's game.
+//Backends sit on a consistent hash ring at virtual_nodes points each, keyed by their username, so adding a backend
+//only takes over the share of new sessions that hash next to its points. A user keeps the backend they were first
+//given until their game ends, whatever joins or leaves in the meantime.
+public final class DoDBackendPool
+{
+    private static final int virtual_nodes = 64;
+
+    //Sorted ring positions, and the backend client ID at each. Replaced wholesale when membership changes.
+    private static final class Ring
+    {
+        final long[] points;
+        final int[] backends;
+        Ring(long[] points, int[] backends)
+        {
+            this.points = points;
+            this.backends = backends;
+        }
+    }
+
+    private final ConcurrentHashMap<Integer, String> backend_names;
+    private final ConcurrentHashMap<String, Integer> sessions;
+    private final ReentrantLock mutex;
+    private volatile Ring ring;
+
+    public DoDBackendPool()
+    {
+        this.backend_names = new ConcurrentHashMap<>();
+        this.sessions = new ConcurrentHashMap<>();
+        this.mutex = new ReentrantLock();
+        this.ring = new Ring(new long[0], new int[0]);
+    }
+    public void addBackend(int client_ID, String backend_name)
+    {
+        this.mutex.lock();
+        try
+        {
+            if(this.backend_names.putIfAbsent(client_ID, backend_name) != null) return;
+            this.rebuildRing();
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+    }
+    //Returns the users whose games were on the backend. Their sessions are forgotten.
+    public ArrayList<String> removeBackend(int client_ID)
+    {
+        ArrayList<String> orphaned_users = new ArrayList<>();
+        this.mutex.lock();
+        try
+        {
+            if(this.backend_names.remove(client_ID) == null) return orphaned_users;
+            this.rebuildRing();
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+        for(Map.Entry<String, Integer> session : this.sessions.entrySet())
+        {
+            if(session.getValue() == client_ID && this.sessions.remove(session.getKey(), client_ID)) orphaned_users.add(session.getKey());
+        }
+        return orphaned_users;
+    }
+    public boolean isBackend(int client_ID)
+    {
+        return this.backend_names.containsKey(client_ID);
+    }
+    //Picks a backend for a new game, or returns -1 if none are connected.
+    public int assign(String client_name)
+    {
+        Integer backend = this.sessions.get(client_name);
+        if(backend != null) return backend;
+        int chosen = this.locate(client_name);
+        if(chosen == -1) return -1;
+        backend = this.sessions.putIfAbsent(client_name, chosen);
+        return (backend == null) ? chosen : backend;
+    }
+    //The backend hosting the user's game, or -1 if they are not in one.
+    public int getBackend(String client_name)
+    {
+        Integer backend = this.sessions.get(client_name);
+        return (backend == null) ? -1 : backend;
+    }
+    public void release(String client_name)
+    {
+        this.sessions.remove(client_name);
+    }
+    public int size()
+    {
+        return this.backend_names.size();
+    }
+
+    private int locate(String client_name)
+    {
+        Ring current = this.ring;
+        if(current.points.length == 0) return -1;
+        int index = Arrays.binarySearch(current.points, Utility.Hash(client_name));
+        //Not an exact hit: take the next point clockwise, wrapping past the end.
+        if(index < 0) index = -index - 1;
+        if(index == current.points.length) index = 0;
+        return current.backends[index];
+    }
+    private void rebuildRing()
+    {
+        int size = this.backend_names.size() * virtual_nodes;
+        long[] keyed_points = new long[size];
+        int[] keyed_backends = new int[size];
+        Integer[] order = new Integer[size];
+        int i = 0;
+        for(Map.Entry<Integer, String> backend : this.backend_names.entrySet())
+        {
+            for(int node = 0; node < virtual_nodes; ++node)
+            {
+                keyed_points[i] = Utility.Hash(backend.getValue() + "#" + node);
+                keyed_backends[i] = backend.getKey();
+                order[i] = i;
+                ++i;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keyed_points[a], keyed_points[b]));
+        long[] points = new long[size];
+        int[] backends = new int[size];
+        for(int j = 0; j < size; ++j)
+        {
+            points[j] = keyed_points[order[j]];
+            backends[j] = keyed_backends[order[j]];
+        }
+        this.ring = new Ring(points, backends);
+    }
+}
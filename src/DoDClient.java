@@ -1,16 +1,32 @@
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class DoDClient extends Client
 {
+    //How long one game command may run before its game is abandoned.
+    public static final long command_deadline_ms = 2000;
+    //Whether new games decide their enemies' actions in parallel. Off unless turned on at launch.
+    private boolean parallel_decisions;
     //Client name : game instance
-    private HashMap<String,Game> game_instances;
+    private ConcurrentHashMap<String,GameSession> game_instances;
+    //Every game's mailbox is drained here. Async mode keeps each worker's queue first in, first out.
+    private ForkJoinPool game_pool;
+    private ScheduledExecutorService watchdog;
     public DoDClient(InetSocketAddress server_config, ThreadRunner<PacketReceiver> thread_runner, PacketHandler server_packet_handler, ThreadRunner<PacketSender> input_thread_runner) throws Exception
     {
         super(SenderType.DODCLIENT, server_config, thread_runner, server_packet_handler, input_thread_runner);
-        this.game_instances = new HashMap<>();
+        this.game_instances = new ConcurrentHashMap<>();
+        this.parallel_decisions = false;
+        this.game_pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dod-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
 
     }
     public void send(Packet packet) throws Exception
@@ -19,11 +35,11 @@ public class DoDClient extends Client
     }
     private void createGame(String client_name)
     {
-        Game game = new Game(false);
-        game.Load(15,1);
-        this.game_instances.put(client_name, game);
+        GameSession session = new GameSession(this, client_name);
+        this.game_instances.put(client_name, session);
+        session.start();
     }
-    private Game getGameInstance(String client_name)
+    private GameSession getGameInstance(String client_name)
     {
         return this.game_instances.get(client_name);
     }
@@ -31,6 +47,27 @@ public class DoDClient extends Client
     {
         this.game_instances.remove(client_name);
     }
+    //Only removes the player if they are still on this session, not a newer one.
+    public void removePlayer(String client_name, GameSession session)
+    {
+        this.game_instances.remove(client_name, session);
+    }
+    public ForkJoinPool getGamePool()
+    {
+        return this.game_pool;
+    }
+    public ScheduledExecutorService getWatchdog()
+    {
+        return this.watchdog;
+    }
+    public void setParallelDecisions(boolean parallel_decisions)
+    {
+        this.parallel_decisions = parallel_decisions;
+    }
+    public boolean getParallelDecisions()
+    {
+        return this.parallel_decisions;
+    }
     public static void senderRun(PacketSender sender)
     {
         try
@@ -42,40 +79,34 @@ public class DoDClient extends Client
             e.printStackTrace();
         }
     }
+    private static final PacketDispatchTable<PacketHandler> dod_routes = new PacketDispatchTable<PacketHandler>()
+            .register(DoDClient::onConnectRequest, Packet.PacketType.DOD_CONNECT_REQUEST)
+            .register(DoDClient::onUserMessage, Packet.PacketType.DOD_USER_MESSAGE);
+
     public static void dodHandlePacket(Packet packet, PacketReceiver receiver)
+    {
+        Client.clientPacketHandler(packet, receiver);
+        //DoD client recieves a message.
+        Client.dispatch(dod_routes, packet, receiver);
+    }
+    //The client just sent "JOIN". The session greets the player once its map has loaded.
+    private static void onConnectRequest(Packet packet, PacketReceiver receiver)
+    {
+        ((DoDClient)receiver.getClient()).createGame(packet.sender_name);
+    }
+    //Only queues the command; the receiver thread goes straight back to reading.
+    private static void onUserMessage(Packet packet, PacketReceiver receiver)
     {
         DoDClient client = (DoDClient)receiver.getClient();
+        GameSession session = client.getGameInstance(packet.sender_name);
+        if(session != null)
+        {
+            session.feed(packet.data);
+            return;
+        }
         try
         {
-            Client.clientPacketHandler(packet, receiver);
-            //DoD client recieves a message.
-            switch(packet.packet_type.toString())
-            {
-                case("DOD_CONNECT_REQUEST"): //The client just sent "JOIN".
-                {
-                    client.createGame(packet.sender_name);
-                    Packet handshake_packet = new Packet(packet.sender_name, "Welcome to the Dungeons of Doom! Enjoy your game!", Packet.PacketType.DOD_CONNECT_GRANTED, SenderType.DODCLIENT);
-                    client.send(handshake_packet);
-                    break;
-                }
-                case("DOD_USER_MESSAGE"):
-                {
-                    Game user_game = client.getGameInstance(packet.sender_name);
-                    ArrayList<String> game_responses = user_game.feedInput(packet.data);
-                    String game_response_string = "\n" + String.join("\n", game_responses);
-                    Packet.PacketType client_message_type;
-                    if(user_game.IsGameOver())
-                    {
-                        client_message_type = Packet.PacketType.DOD_GAME_OVER;
-                        client.removePlayer(packet.sender_name);
-                        game_response_string = game_response_string + "\n" + "Returning to server...";
-                    }
-                    else client_message_type = Packet.PacketType.DOD_GAME_MESSAGE;
-                    Packet response = new Packet(packet.sender_name,game_response_string, client_message_type, SenderType.DODCLIENT);
-                    client.send(response);
-                    break;
-                }
-            }
+            client.send(new Packet(packet.sender_name, "You are not in a game. Returning to server...", Packet.PacketType.DOD_GAME_OVER, SenderType.DODCLIENT));
         }
         catch(Exception exception)
         {
@@ -88,6 +119,8 @@ public class DoDClient extends Client
         try
         {
             DoDClient client = new DoDClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), 4999), DoDClient::receiverRun, DoDClient::dodHandlePacket, DoDClient::senderRun);
+            //Optional argument: "true" to decide enemy actions in parallel.
+            if(args.length > 0) client.setParallelDecisions(Boolean.parseBoolean(args[0]));
             client.start();
         }
         catch(Exception exception)
@@ -40,7 +40,19 @@ public class Enemy extends Player {
      */
     @Override
     public ArrayList<String> GetPlayerAction() {
-        return search_algorithm.ExecuteSearch(new Vector2(position));
+        return search_algorithm.ExecuteSearch(Coord.X(position), Coord.Y(position));
+    }
+
+    /**
+     * Description : The same verdict as GetPlayerAction, packed into a BotAction. This is what the game asks for every round,
+     * so that no command is built for it to parse.
+     *
+     * @param seed The seed of any random choice the decision makes.
+     * @return The packed action, for instance BotAction.Move(0) for "MOVE N".
+     */
+    public int GetBotAction(long seed) {
+        search_algorithm.SeedDecision(seed);
+        return search_algorithm.Decide(Coord.X(position), Coord.Y(position));
     }
         /*
         Description : Updates the vision of the enemy. This is called when the 'brain' of the enemy, the SearchAlgorithm
@@ -55,4 +67,13 @@ public class Enemy extends Player {
     public void UpdateVisionMap(MapSubset mapsubset) {
         search_algorithm.UpdateMapSubset(mapsubset);
     }
+
+    /**
+     * Description : Returns the vision map of the enemy, so that it can be refilled in place.
+     *
+     * @return The current map subset, or null if the enemy has not looked yet.
+     */
+    public MapSubset GetVisionMap() {
+        return search_algorithm.GetMapSubset();
+    }
 };
\ No newline at end of file
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+
+/**
+ * Description : A search algorithm which follows the distance field its game keeps toward the heroes, rather than searching on its own.
+ * Here is how the algorithm operates :
+ * -It never requests a vision update, since the field already knows where the heroes are.
+ * MOVEMENT
+ * -Steps onto whichever neighbouring tile is closest to a hero according to the field. This only reads four cells, so hundreds of
+ * enemies chasing the same hero cost little more than one.
+ * -If no neighbour brings it closer, for instance because every hero is out of the field's reach, it wanders onto a random traversable neighbour.
+ */
+public class FlowFieldSearch extends SearchAlgorithm {
+    /**
+     * Description : The cardinal directions, in the order in which neighbours are read.
+     */
+    private static final int[] DIRECTION_X = {0, 1, 0, -1};
+    private static final int[] DIRECTION_Y = {-1, 0, 1, 0};
+    /**
+     * Description : The distance field shared by every enemy of the game.
+     */
+    private final DistanceField distance_field;
+
+    /**
+     * Description : Constructor which asks for a target to seek, and the field which leads to it.
+     *
+     * @param target         The seeked target.
+     * @param distance_field The distance field of the game.
+     */
+    public FlowFieldSearch(char target, DistanceField distance_field) {
+        super(target);
+        this.distance_field = distance_field;
+    }
+
+    /**
+     * Description : Overrides the abstract base method and returns a step down the distance field.
+     *
+     * @param start_position The start position of the entity in global coordinates.
+     * @return The verdict command of the search, for instance {"MOVE", "N"}.
+     */
+    @Override
+    public ArrayList<String> ExecuteSearch(Vector2 start_position) {
+        return ExecuteSearch(start_position.x, start_position.y);
+    }
+
+    /**
+     * Description : Returns a step down the distance field as a command, for the callers which still want one.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The verdict command of the search, for instance {"MOVE", "N"}.
+     */
+    @Override
+    public ArrayList<String> ExecuteSearch(int start_x, int start_y) {
+        return BotAction.ToCommand(Decide(start_x, start_y));
+    }
+
+    /**
+     * Description : Returns a step down the distance field, without allocating a position or a command.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The packed action, for instance BotAction.Move(0) for "MOVE N".
+     */
+    @Override
+    public int Decide(int start_x, int start_y) {
+        int record_direction = -1;
+        int record_distance = distance_field.GetDistance(start_x, start_y);
+        for (int direction = 0; direction < 4; ++direction) {
+            final int distance = distance_field.GetDistance(start_x + DIRECTION_X[direction], start_y + DIRECTION_Y[direction]);
+            if (distance < record_distance) {
+                record_distance = distance;
+                record_direction = direction;
+            }
+        }
+        //Explanation : Nothing leads closer to a hero. Wander instead, starting from a random direction so that no direction is favoured.
+        if (record_direction == -1) {
+            final int first = NextRandom(4);
+            for (int i = 0; i < 4 && record_direction == -1; ++i) {
+                final int direction = (first + i) & 3;
+                if (distance_field.IsTraversable(start_x + DIRECTION_X[direction], start_y + DIRECTION_Y[direction])) record_direction = direction;
+            }
+        }
+        //Explanation : We cannot move at all, and so there is no action.
+        if (record_direction == -1) return BotAction.NONE;
+        return BotAction.Move(record_direction);
+    }
+};
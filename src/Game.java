@@ -2,6 +2,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Description : -This is the main logic of the Dungeons of Doom game.
@@ -47,6 +49,75 @@ public final class Game {
      * A hashmap was chosen as opposed to an array, for ease of use, intuition, and for longevity purposes.
      */
     private HashMap<String, GameCommand> game_commands = new HashMap<String, GameCommand>();
+    /**
+     * Description : Scratch subset reused by every human LOOK in this game. Enemies keep their own subset, since their search algorithm holds onto it between turns.
+     */
+    private MapSubset look_subset = null;
+    /**
+     * Description : Which players stand on which cell of the map. Each player keeps it up to date as it moves.
+     */
+    private OccupancyGrid occupancy = null;
+    /**
+     * Description : The spawnable cells no player stands on. The occupancy grid keeps it up to date.
+     */
+    private SpawnIndex spawn_index = null;
+    /**
+     * Description : How far, in steps, the enemies can sense a hero through the distance field.
+     */
+    private static final int FLOW_FIELD_RADIUS = 32;
+    /**
+     * Description : The distance of each cell from the nearest hero, shared by every enemy. Rebuilt only after a hero moves.
+     * Null on maps of HIERARCHICAL_MAP_TILES or more, whose enemies never read it.
+     */
+    private DistanceField distance_field = null;
+    /**
+     * Description : Maps with at least this many tiles are too large for the distance field to cover, so their enemies plan hierarchically instead.
+     */
+    private static final int HIERARCHICAL_MAP_TILES = 128 * 128;
+    /**
+     * Description : The player index of each hero, and a scratch array of their cells, so that refreshing the distance field never scans the enemies.
+     */
+    private int[] hero_indices = new int[0];
+    private int[] hero_cells = new int[0];
+    /**
+     * Description : Whether the enemies decide their actions in parallel before any of them are applied. See Update.
+     */
+    private boolean parallel_decisions = false;
+    /**
+     * Description : Ranges of enemies at most this long are decided on the calling thread rather than split further.
+     */
+    private static final int DECISION_BATCH = 32;
+    /**
+     * Description : Level of detail. Enemies within LOD_NEAR_RADIUS tiles of a hero (in either axis) decide every round. Enemies within
+     * LOD_MID_RADIUS decide every LOD_MID_INTERVAL rounds and wander in between. Enemies further away are parked, and are not visited at all.
+     */
+    private static final int LOD_NEAR_RADIUS = 8;
+    private static final int LOD_MID_RADIUS = FLOW_FIELD_RADIUS;
+    private static final int LOD_MID_INTERVAL = 4;
+    /**
+     * Description : The players acting this round in player order, and whether each of them decides or wanders. Rebuilt at the start of every round.
+     */
+    private int[] schedule = new int[0];
+    private boolean[] schedule_decides = new boolean[0];
+    /**
+     * Description : The actions decided in parallel this round, indexed like the players array. Reused between rounds.
+     */
+    private int[] enemy_actions = new int[0];
+    private int schedule_size = 0;
+    /**
+     * Description : The round in which each player was last scheduled, so that an enemy near two heroes is only scheduled once.
+     */
+    private int[] scheduled_round = new int[0];
+    private int round = 0;
+    /**
+     * Description : The seed of every random choice the enemies make. Each choice is seeded from it, the round and the player index,
+     * so a round plays out the same however its decisions are split across threads.
+     */
+    private final long random_seed = ThreadLocalRandom.current().nextLong();
+    /**
+     * Description : The most commands a single message of player input may batch together.
+     */
+    private static final int MAX_BATCHED_COMMANDS = 32;
 
     /**
      * Description : Default constructor registering all necessary map parameters, and commands.
@@ -126,18 +197,15 @@ public final class Game {
      */
     private void EXAMINER_DEBUG_MODE() {
         Utility.PrintToConsole("@@@@@@@@@@@@@@@START EXAMINER DEBUG MODE@@@@@@@@@@@@@@@");
-        //Explanation : Print the entire map with map.
-        ArrayList<String> map_array = this.map_manager.GetTileArray();
-        for (int y = 0; y < map_array.size(); ++y) {
-            for (int x = 0; x < map_array.get(0).length(); ++x) {
-                for (final Player player : this.players) {
-                    StringBuilder new_row = new StringBuilder(map_array.get(y));
-                    if (!Vector2.Compare(new Vector2(x, y), player.GetPosition())) continue;
-                    new_row.setCharAt(x, player.GetToken());
-                    map_array.set(y, new_row.toString());
-                }
-            }
+        //Explanation : Print the entire map with map. The tiles are copied into a grid once, and each player is stamped onto it directly.
+        Vector2 map_dim = this.map_manager.GetMapDimensions();
+        char[][] map_grid = new char[map_dim.y][map_dim.x];
+        for (int y = 0; y < map_dim.y; ++y) {
+            for (int x = 0; x < map_dim.x; ++x) map_grid[y][x] = this.map_manager.GetTile(x, y);
         }
+        for (final Player player : this.players) map_grid[player.GetY()][player.GetX()] = player.GetToken();
+        ArrayList<String> map_array = new ArrayList<>(map_dim.y);
+        for (char[] row : map_grid) map_array.add(new String(row));
         Utility.PrintStringArray(map_array);
         //Explanation : Print the positions of each player, and their vision.
         for (int i = 0; i < this.players.size(); ++i) {
@@ -152,8 +220,8 @@ public final class Game {
                 Utility.PrintToConsole(Gold(new ArrayList<>()));
                 Utility.PrintToConsole(Hello(new ArrayList<>()));
             }
-            MapSubset player_subset = GetSubset(player_position, current_player.GetFieldOfVisionDimensions());
-            Utility.PrintStringArray(player_subset.map_subset);
+            MapSubset player_subset = FillSubset(null, player_position.x, player_position.y, current_player.GetFieldOfVisionDimensions());
+            System.out.print(player_subset.Render());
             Utility.PrintToConsole("@@@ END_INFO @@@\n");
         }
 
@@ -168,6 +236,11 @@ public final class Game {
     private void RegisterPlayers(int n_enemies, int n_heroes) throws GameException {
         //Explanation : Negative number of players.
         if (n_enemies <= 0 || n_heroes <= 0) throw new GameException("G03");
+        this.spawn_index = this.map_manager.CreateSpawnIndex();
+        this.occupancy = new OccupancyGrid(this.map_manager.GetMapDimensions(), this.spawn_index);
+        //Explanation : The field costs several arrays the size of the map, so it is only built on maps whose enemies follow it.
+        final Vector2 map_dim = this.map_manager.GetMapDimensions();
+        this.distance_field = (map_dim.x * map_dim.y < HIERARCHICAL_MAP_TILES) ? new DistanceField(this.map_manager, FLOW_FIELD_RADIUS) : null;
         //Explanation : Try to register each hero and enemy.
         for (int j = 0; j < n_heroes; ++j) {
             RegisterHero();
@@ -188,74 +261,229 @@ public final class Game {
 
     /**
      * Description : Produces a random, spawnable position from our map array. In Dungeons of Doom, the spawnable tiles are "E."
-     * It is possible that the user has entered a map of ONLY non-traversable tiles. Therefore, I have decided to set a limit on
-     * the number of attempts that a random position should be generated. If a position was not found after these iterations, then
-     * a game exception is thrown since the map is too densely populated with non-traversable tiles.
+     * The spawnable cells are indexed once when the game is loaded, and the cells which players stand on are kept out of the index,
+     * so a position is drawn directly rather than by retrying random positions. A game exception is only thrown once every
+     * spawnable tile is taken, since the map is then too densely populated for another player.
      *
      * @return The final position.
      * @throws GameException The exception (if applicable) describing how the non-traversable-tile density needs to be reduced for a position to be found.
      */
     private Vector2 RandomValidPosition() throws GameException {
-        //Explanation : The random position should be bounded by our map dimensions.
-        final String spawnable_tiles = this.map_manager.GetParameterArgument("spawnable_tiles");
-        Vector2 map_dim = this.map_manager.GetMapDimensions();
-        for (int i = 0; i < map_dim.x * map_dim.y; ++i) {
-            //Generate a number between 0 and the max dimension of the map.
-
-            Vector2 random_position = new Vector2(Utility.RandomNumber(0, map_dim.x - 1), Utility.RandomNumber(0, map_dim.y - 1));
-            //Check if this tile is a exit of . tile.
-            if (spawnable_tiles.indexOf(map_manager.GetTile(random_position)) == 1) {
-                if (players.isEmpty()) return random_position;
-                for (final Player player : players) {
-                    if (Vector2.Compare(player.GetPosition(), random_position)) continue;
-                    return random_position;
-                }
-            }
-        }
-        throw new GameException("G04");
+        Vector2 random_position = this.spawn_index.RandomFreePosition();
+        if (random_position == null) throw new GameException("G04");
+        return random_position;
     }
 
     /**
-     * Description : Requests a subset from the map manager, and fills the subset in with the relevant player tokens.
+     * Description : Refills a subset from the map manager, and stamps the relevant player tokens into it.
+     * The subset is reused when it already has the requested dimensions, and only created otherwise.
      *
-     * @param centre The centre on which the subset should be based.
-     * @param size   The dimensions of the subset.
+     * @param subset The subset to reuse, or null.
+     * @param centre_x The column on which the subset should be based.
+     * @param centre_y The row on which the subset should be based.
+     * @param size     The dimensions of the subset.
      * @return The object containing information about the subset.
      */
-    private MapSubset GetSubset(Vector2 centre, Vector2 size) {
+    private MapSubset FillSubset(MapSubset subset, int centre_x, int centre_y, Vector2 size) {
+        //Explanation : The subset dimensions are always rounded up to be odd, so compare against the rounded size.
+        if (subset == null || subset.subset_dim.x != (size.x | 1) || subset.subset_dim.y != (size.y | 1)) {
+            subset = map_manager.CreateMapSubset(size);
+        }
         //Explanation : Obtain the raw, tile-only subset from the map manager (the map manager has no access to the players)
-        MapSubset subset = map_manager.GetMapSubset(centre, size);
-        //Explanation : Iterate through each player and substitute their tokens into the subset, if they exist within it.
-        for (final Player player : players) {
-            //Explanation : Convert the player position to the subset's local coordinates.
-            Vector2 player_pos = player.GetPosition();
-            if (!Utility.Contains(player_pos, subset.subset_world_top_left, subset.subset_world_bottom_right)) continue;
-            //Explanation : Convert player position into local subset coordinates.
-            player_pos = subset.WorldToSubsetCoord(player_pos);
-            //Explanation : Substitute the player token in for the tile at his position within the subset.
-            StringBuilder new_row = new StringBuilder(subset.map_subset.get(player_pos.y));
-            new_row.setCharAt(player_pos.x, player.GetToken());
-            //Explanation : Save the changes to the subset row.
-            subset.map_subset.set(player_pos.y, new_row.toString());
+        map_manager.FillMapSubset(subset, centre_x, centre_y);
+        //Explanation : Visit only the cells of the subset which lie on the map, and substitute the tokens of the players standing on them.
+        final int left = Math.max(subset.subset_world_top_left.x, 0);
+        final int top = Math.max(subset.subset_world_top_left.y, 0);
+        final int right = Math.min(subset.subset_world_bottom_right.x, subset.full_map_dim.x - 1);
+        final int bottom = Math.min(subset.subset_world_bottom_right.y, subset.full_map_dim.y - 1);
+        for (int y = top; y <= bottom; ++y) {
+            for (int x = left; x <= right; ++x) {
+                for (int player = this.occupancy.GetFirst(x, y); player != OccupancyGrid.NONE; player = this.occupancy.GetNext(player)) {
+                    //Explanation : Substitute the player token in for the tile at his position within the subset.
+                    subset.SetTile(x - subset.subset_world_top_left.x, y - subset.subset_world_top_left.y, players.get(player).GetToken());
+                }
+            }
         }
         return subset;
     }
 
+    /**
+     * Description : Decides the action of every scheduled enemy from the given slot onward, in parallel, without applying any of them.
+     * Every enemy sees the same state: the positions as they stand now, and a distance field refreshed once beforehand.
+     * Nothing moves while the decisions are made, each enemy only changes its own search state, and its random choices are
+     * seeded from the round and its index, so the enemies can be split across the fork join pool freely, and the outcome does not depend on how they were split.
+     *
+     * @param first_slot The first slot of the schedule to decide for.
+     * @param round_seed The seed of the round, from RoundSeed.
+     * @return The packed BotAction of each deciding enemy, indexed like the players array. Every other entry is left over from an earlier round.
+     */
+    private int[] DecideEnemyActions(int first_slot, long round_seed) {
+        RefreshDistanceField();
+        if (this.enemy_actions.length < this.players.size()) this.enemy_actions = new int[this.players.size()];
+        new EnemyDecisions(this.players, this.schedule, this.schedule_decides, this.enemy_actions, round_seed, first_slot, this.schedule_size).invoke();
+        return this.enemy_actions;
+    }
+
+    /**
+     * Description : Decides the actions of a range of schedule slots, halving the range across the fork join pool until it is small enough to decide directly.
+     * When invoked from a worker of a pool, such as the pool running this game, the halves are forked into that pool; otherwise into the common pool.
+     */
+    private static final class EnemyDecisions extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ArrayList<Player> players;
+        private final int[] schedule;
+        private final boolean[] decides;
+        private final int[] actions;
+        private final long round_seed;
+        private final int from;
+        private final int to;
+
+        EnemyDecisions(ArrayList<Player> players, int[] schedule, boolean[] decides, int[] actions, long round_seed, int from, int to) {
+            this.players = players;
+            this.schedule = schedule;
+            this.decides = decides;
+            this.actions = actions;
+            this.round_seed = round_seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= DECISION_BATCH) {
+                for (int slot = this.from; slot < this.to; ++slot) {
+                    final int player_index = this.schedule[slot];
+                    Player player = this.players.get(player_index);
+                    if (this.decides[slot] && !player.IsHuman()) this.actions[player_index] = ((Enemy) player).GetBotAction(this.round_seed + player_index);
+                }
+                return;
+            }
+            final int middle = (this.from + this.to) >>> 1;
+            invokeAll(new EnemyDecisions(this.players, this.schedule, this.decides, this.actions, this.round_seed, this.from, middle),
+                    new EnemyDecisions(this.players, this.schedule, this.decides, this.actions, this.round_seed, middle, this.to));
+        }
+    }
+
+    /**
+     * Description : Works out who acts this round. Every hero acts. The enemies are found by visiting the cells around each hero in
+     * the occupancy grid, so parked enemies are never looked at. Near enemies decide; mid range enemies decide once every
+     * LOD_MID_INTERVAL rounds, staggered by their index so they do not all decide in the same round, and wander otherwise.
+     */
+    private void BuildSchedule() {
+        ++this.round;
+        if (this.scheduled_round.length < this.players.size()) {
+            this.scheduled_round = Arrays.copyOf(this.scheduled_round, this.players.size());
+            this.schedule = new int[this.players.size()];
+            this.schedule_decides = new boolean[this.players.size()];
+        }
+        this.schedule_size = 0;
+        for (int hero_index : this.hero_indices) {
+            this.scheduled_round[hero_index] = this.round;
+            this.schedule[this.schedule_size++] = hero_index;
+        }
+        for (int hero_index : this.hero_indices) {
+            final int hero_x = this.players.get(hero_index).GetX();
+            final int hero_y = this.players.get(hero_index).GetY();
+            for (int y = hero_y - LOD_MID_RADIUS; y <= hero_y + LOD_MID_RADIUS; ++y) {
+                for (int x = hero_x - LOD_MID_RADIUS; x <= hero_x + LOD_MID_RADIUS; ++x) {
+                    for (int player = this.occupancy.GetFirst(x, y); player != OccupancyGrid.NONE; player = this.occupancy.GetNext(player)) {
+                        if (this.scheduled_round[player] == this.round) continue;
+                        this.scheduled_round[player] = this.round;
+                        this.schedule[this.schedule_size++] = player;
+                    }
+                }
+            }
+        }
+        //Explanation : Players still act in the same order as they always have.
+        Arrays.sort(this.schedule, 0, this.schedule_size);
+        for (int slot = 0; slot < this.schedule_size; ++slot) {
+            final int player = this.schedule[slot];
+            this.schedule_decides[slot] = HeroDistance(this.players.get(player).GetCoord()) <= LOD_NEAR_RADIUS || (this.round + player) % LOD_MID_INTERVAL == 0;
+        }
+    }
+
+    /**
+     * @param position The position to measure from, packed by Coord.
+     * @return The distance to the nearest hero, as the larger of the distances along each axis.
+     */
+    private int HeroDistance(long position) {
+        int record_distance = Integer.MAX_VALUE;
+        for (int hero_index : this.hero_indices) {
+            final Player hero = this.players.get(hero_index);
+            record_distance = Math.min(record_distance, Math.max(Math.abs(hero.GetX() - Coord.X(position)), Math.abs(hero.GetY() - Coord.Y(position))));
+        }
+        return record_distance;
+    }
+
+    /**
+     * Description : The cheap action of a mid range enemy between its decisions: a step in a random direction. Walls simply fail the move.
+     *
+     * @param seed The seed of the step, from RoundSeed and the player index.
+     * @return The packed BotAction.
+     */
+    private int Wander(long seed) {
+        return BotAction.Move((int) (Utility.Mix64(seed) & 3));
+    }
+
+    /**
+     * @return The seed of the current round. A player's random choices this round are seeded with it plus the player's index.
+     */
+    private long RoundSeed() {
+        return Utility.Mix64(this.random_seed + this.round * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Description : Chooses whether the enemies decide their actions in parallel before they are applied, or one after another as each one acts.
+     * In parallel mode an enemy no longer sees the moves of the enemies before it in the same round, only those of the heroes.
+     *
+     * @param parallel_decisions Whether to decide in parallel.
+     */
+    public void SetParallelDecisions(boolean parallel_decisions) {
+        this.parallel_decisions = parallel_decisions;
+    }
+
+    /**
+     * Description : Hands the current hero positions to the distance field, which only searches again if one of them has moved.
+     * Does nothing on maps without a distance field.
+     */
+    private void RefreshDistanceField() {
+        if (this.distance_field == null) return;
+        final int width = this.map_manager.GetWidth();
+        for (int i = 0; i < this.hero_indices.length; ++i) {
+            final Player hero = this.players.get(this.hero_indices[i]);
+            this.hero_cells[i] = hero.GetY() * width + hero.GetX();
+        }
+        this.distance_field.Update(this.hero_cells, this.hero_cells.length);
+    }
+
+    /**
+     * Description : Finds the hero closest to a position, by the number of steps ignoring walls.
+     *
+     * @param position The position to measure from, packed by Coord.
+     * @return The packed position of the nearest hero, or Coord.NONE if there are none.
+     */
+    private long NearestHero(long position) {
+        long record_position = Coord.NONE;
+        int record_distance = Integer.MAX_VALUE;
+        for (int hero_index : this.hero_indices) {
+            final Player hero = this.players.get(hero_index);
+            final int distance = Math.abs(hero.GetX() - Coord.X(position)) + Math.abs(hero.GetY() - Coord.Y(position));
+            if (distance < record_distance) {
+                record_distance = distance;
+                record_position = hero.GetCoord();
+            }
+        }
+        return record_position;
+    }
+
     /**
      * Description : Determines whether or not a game will end as a result of the current player moving onto an opposing player.
+     * Only the current player can have moved since the last check, so only the cell it stands on needs to be looked at.
      * @return Whether or not the game is lost from two opposing players.
      */
     private boolean CheckLoss() {
-        for (int player1 = 0; player1 < players.size(); ++player1) {
-            for (int player2 = player1 + 1; player2 < players.size(); ++player2) {
-                Player ply1 = players.get(player1);
-                Player ply2 = players.get(player2);
-                //Explanation : The game is lost when an enemy and a non enemy meet.
-                if (Vector2.Compare(ply1.GetPosition(), ply2.GetPosition()) && (ply1.IsHuman() && !ply2.IsHuman() || !ply1.IsHuman() && ply2.IsHuman()))
-                    return true;
-            }
-        }
-        return false;
+        final Player current_player = GetCurrentPlayer();
+        return this.occupancy.IsContested(current_player.GetX(), current_player.GetY());
     }
 
     /**
@@ -267,22 +495,27 @@ public final class Game {
     private String Look(ArrayList<String> details) {
         Player current_player = GetCurrentPlayer();
         //Description : Obtain the subset centred on the current player.
-        MapSubset map_subset = GetSubset(current_player.GetPosition(), current_player.GetFieldOfVisionDimensions());
         //Description : If a human requested this command, then the specification demands us to print the subset to the command line.
         if (current_player.IsHuman()) {
-            StringBuilder map_string = new StringBuilder();
-            for (String row : map_subset.map_subset) {
-                map_string.append(row + "\n");
-            }
-            return map_string.toString();
+            this.look_subset = FillSubset(this.look_subset, current_player.GetX(), current_player.GetY(), current_player.GetFieldOfVisionDimensions());
+            return this.look_subset.Render();
         }
-        //Description : Otherwise, it was an enemy that requested this command. Update his vision map.
+        //Description : Otherwise, it was an enemy that requested this command.
         else {
-            ((Enemy) current_player).UpdateVisionMap(map_subset);
+            LookEnemy((Enemy) current_player);
             return new String();
         }
     }
 
+    /**
+     * Description : Refills the vision map of an enemy in place. It is never rendered.
+     *
+     * @param enemy The enemy looking.
+     */
+    private void LookEnemy(Enemy enemy) {
+        enemy.UpdateVisionMap(FillSubset(enemy.GetVisionMap(), enemy.GetX(), enemy.GetY(), enemy.GetFieldOfVisionDimensions()));
+    }
+
     /**
      * Description : Command callable responsible for the "PICKUP" request which attempts to pick the tile up at the current player's position.
      *
@@ -291,17 +524,54 @@ public final class Game {
      */
     private String Pickup(ArrayList<String> details) {
         Hero current_player = (Hero) (GetCurrentPlayer());
-        Vector2 player_position = current_player.GetPosition();
 
         //Description : Attempt to pick up the gold.
         String res = new String();
-        if (map_manager.TryPickupGold(player_position)) {
+        if (map_manager.TryPickupGold(current_player.GetX(), current_player.GetY())) {
             res = "Success.";
             current_player.IncrementGold();
         } else res = "Fail.";
         return res.toString() + " " + this.Gold(new ArrayList<>());
     }
 
+    /**
+     * Description : Whether a player may step onto a tile.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @return False if the tile is off the map or not traversable.
+     */
+    private boolean CanEnter(int x, int y) {
+        //Explanation : Players are only ever tracked on the map itself, so the edge of the map is impassable whatever the default tile.
+        if (!map_manager.Contains(x, y)) return false;
+        return map_manager.GetNonTraversableTiles().indexOf(map_manager.GetTile(x, y)) == -1;
+    }
+
+    /**
+     * Description : Applies the packed action of an enemy straight to the move and look handlers. Bots can only ever produce
+     * well formed actions, so none of the parsing or argument checks of the string commands are needed.
+     *
+     * @param enemy  The enemy acting, which is the current player.
+     * @param action The packed BotAction.
+     * @return Whether the enemy did anything. A move into a wall still counts, as it does for a "MOVE" command.
+     */
+    private boolean ApplyBotAction(Enemy enemy, int action) {
+        switch (BotAction.Opcode(action)) {
+            case BotAction.MOVE: {
+                final int direction = BotAction.Direction(action);
+                final int x = enemy.GetX() + BotAction.DirectionX(direction);
+                final int y = enemy.GetY() + BotAction.DirectionY(direction);
+                if (CanEnter(x, y)) enemy.SetPosition(x, y);
+                return true;
+            }
+            case BotAction.LOOK:
+                LookEnemy(enemy);
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Description : Command callable which is responsible for handling the "MOVE" command request.
      *
@@ -314,15 +584,17 @@ public final class Game {
             the command may look like "MOVE N E". This general function facilitates this.
          */
         Player current_player = GetCurrentPlayer();
-        Vector2 resultant_position = current_player.GetPosition();
+        int resultant_x = current_player.GetX();
+        int resultant_y = current_player.GetY();
         //Explanation : Iterate through each of the cardinal arguments, and update the position.
-        for (String argument : cmd_args) {
-            resultant_position.Add(Utility.CardinalToVector2(argument.charAt(0)));
-            if (map_manager.GetNonTraversableTiles().indexOf(map_manager.GetTile(resultant_position)) != -1)
-                return ("Fail");
+        for (int i = 0; i < cmd_args.size(); ++i) {
+            final char cardinal = cmd_args.get(i).charAt(0);
+            resultant_x += Coord.CardinalX(cardinal);
+            resultant_y += Coord.CardinalY(cardinal);
+            if (!CanEnter(resultant_x, resultant_y)) return ("Fail");
         }
         //Explanation : The movement argument(s) is/were valid. Update the position of the player.
-        GetCurrentPlayer().SetPosition(resultant_position);
+        current_player.SetPosition(resultant_x, resultant_y);
         return "Success";
     }
 
@@ -379,31 +651,53 @@ public final class Game {
 
         ArrayList<String> res = new ArrayList<>();
         ((Hero)this.players.get(0)).setPlayerAction(user_input);
-        for (int i = 0; i < players.size(); ++i) {
+        //Explanation : Only the heroes and the enemies near them act. The cost of a round follows how many enemies are near a hero, not how many there are.
+        BuildSchedule();
+        final long round_seed = RoundSeed();
+        //Explanation : In parallel mode, every enemy's action is decided up front, once the heroes ahead of them have acted. They are still applied in order below.
+        int[] decided_actions = null;
+        for (int slot = 0; slot < this.schedule_size; ++slot) {
+            final int i = this.schedule[slot];
             Player player_entity = players.get(i);
             this.current_player_index = i;
-            //Explanation : Ask for the player's command.
-            ArrayList<String> cmd_args = player_entity.GetPlayerAction();
-            //Explanation : An empty command is moot.
-            if (cmd_args.isEmpty()) continue;
-            //Explanation : Check to see if this command has been registered.
-            final String command_name = cmd_args.get(0);
-            if (!game_commands.containsKey(command_name)) {
-                //Explanation : The user input entered an invalid command.
-                Logger.Log("G01", "", false);
-                continue;
-            }
-            /*
-                Explanation : Try to execute the command. Note that a precise number and type of arguments is required by the game command, as outlined previously.
-                If the command was successfully read, then the callable executes automagically.
-             */
-            String game_command_string = game_commands.get(command_name).ExecuteCommand(current_player_index, player_entity.IsHuman(), cmd_args);
-            if(game_command_string.isEmpty())
-            {
-                Logger.Log("G02", "", false);
-                continue;
+            //Explanation : Enemies hand back a packed action, which is applied directly. Only human input is parsed as a command.
+            if (!player_entity.IsHuman()) {
+                final int action;
+                if (!this.schedule_decides[slot]) {
+                    action = Wander(round_seed + i);
+                } else if (this.parallel_decisions) {
+                    if (decided_actions == null) decided_actions = DecideEnemyActions(slot, round_seed);
+                    action = decided_actions[i];
+                } else {
+                    RefreshDistanceField();
+                    action = ((Enemy) player_entity).GetBotAction(round_seed + i);
+                }
+                //Explanation : An enemy which cannot do anything this round has no effect.
+                if (!ApplyBotAction((Enemy) player_entity, action)) continue;
+            } else {
+                //Explanation : Ask for the player's command.
+                ArrayList<String> cmd_args = player_entity.GetPlayerAction();
+                //Explanation : An empty command is moot.
+                if (cmd_args.isEmpty()) continue;
+                //Explanation : Check to see if this command has been registered.
+                final String command_name = cmd_args.get(0);
+                if (!game_commands.containsKey(command_name)) {
+                    //Explanation : The user input entered an invalid command.
+                    Logger.Log("G01", "", false);
+                    continue;
+                }
+                /*
+                    Explanation : Try to execute the command. Note that a precise number and type of arguments is required by the game command, as outlined previously.
+                    If the command was successfully read, then the callable executes automagically.
+                 */
+                String game_command_string = game_commands.get(command_name).ExecuteCommand(current_player_index, player_entity.IsHuman(), cmd_args);
+                if(game_command_string.isEmpty())
+                {
+                    Logger.Log("G02", "", false);
+                    continue;
+                }
+                res.add(game_command_string);
             }
-            if(player_entity.IsHuman()) res.add(game_command_string);
             /*
                 Explanation : Putting the check loss here instead of within the MOVE command reduces the otherwise tight coupling between them.
                 In the future, it is possible that a future programmer may want to add another way in which the game can be lost, which could possibly be
@@ -438,14 +732,27 @@ public final class Game {
      *
      * @param n_enemies The number of enemies to create.
      * @param n_heroes  The number of heroes to create.
+     * @return Whether the map was read and every player placed.
+     */
+    public boolean Load(int n_enemies, int n_heroes) {
+        return this.Load("D:\\FILES\\Desktop\\Semester Two\\CM10228\\Coursework\\Chat Client\\jb2865-CW1\\src\\large_example_map.txt", n_enemies, n_heroes);
+    }
+
+    /**
+     * Description : Tries to initialise the game on the given map file. The file itself is only read by the first game to use it; see MapTemplate.
+     *
+     * @param map_name  The name of the map file.
+     * @param n_enemies The number of enemies to create.
+     * @param n_heroes  The number of heroes to create.
+     * @return Whether the map was read and every player placed. The game cannot be played otherwise.
      */
-    public void Load(int n_enemies, int n_heroes) {
+    public boolean Load(String map_name, int n_enemies, int n_heroes) {
         //Explanation : If the user enters a wrong map a certain number of times, then he will be asked whether or not he would like to load a default map.
         final int max_fail_counter = 3;
         //Explanation : Helper lambda to try and load the file.
-        GeneralCallable<Boolean, String> process_load = (String map_name) ->
+        GeneralCallable<Boolean, String> process_load = (String file_name) ->
         {
-            if (map_manager.ReadMap(map_name, this.EXAMINER_DEBUG_MODE))
+            if (map_manager.ReadMap(file_name, this.EXAMINER_DEBUG_MODE))
                 //Explanation : The map read was successful.
                 //Explanation : Try to register the players.
                 try {
@@ -459,7 +766,7 @@ public final class Game {
                 }
             return false;
         };
-        process_load.run("D:\\FILES\\Desktop\\Semester Two\\CM10228\\Coursework\\Chat Client\\jb2865-CW1\\src\\large_example_map.txt");
+        return process_load.run(map_name);
     }
 
     /**
@@ -471,9 +778,14 @@ public final class Game {
     public void RegisterEnemy() throws GameException {
         //Explanation : Create and add the enemy to the players array. The vision of the enemy must be initialised.
         Vector2 random_position = this.RandomValidPosition();
-        Enemy enemy = new Enemy('B', random_position, new Vector2(5, 5), new GreedyEuclideanSearch('P'));
+        Vector2 map_dim = this.map_manager.GetMapDimensions();
+        SearchAlgorithm search_algorithm = (map_dim.x * map_dim.y >= HIERARCHICAL_MAP_TILES)
+                ? new HierarchicalSearch('P', this.map_manager.GetClusterGraph(), this::NearestHero)
+                : new FlowFieldSearch('P', this.distance_field);
+        Enemy enemy = new Enemy('B', random_position, new Vector2(5, 5), search_algorithm);
         players.add(enemy);
-        enemy.UpdateVisionMap(GetSubset(random_position, enemy.GetFieldOfVisionDimensions()));
+        enemy.Track(this.occupancy, players.size() - 1);
+        enemy.UpdateVisionMap(FillSubset(null, random_position.x, random_position.y, enemy.GetFieldOfVisionDimensions()));
         //Explanation : Register a subscription of the current enemy to the "LOOK" and "MOVE" commands.
         int enemy_index = players.size() - 1;
         game_commands.get("LOOK").Subscribe(enemy_index);
@@ -492,6 +804,10 @@ public final class Game {
         players.add(new Hero('P', this.RandomValidPosition(), new Vector2(5, 5)));
         //Explanation : Register subscriptions for all commands, for this hero.
         int player_index = players.size() - 1;
+        players.get(player_index).Track(this.occupancy, player_index);
+        this.hero_indices = Arrays.copyOf(this.hero_indices, this.hero_indices.length + 1);
+        this.hero_indices[this.hero_indices.length - 1] = player_index;
+        this.hero_cells = new int[this.hero_indices.length];
         //Explanation : Subscribe the hero to each available command.
         this.game_commands.forEach((key, value) -> value.Subscribe(player_index));
     }
@@ -514,8 +830,33 @@ public final class Game {
     }
 
 
+    /**
+     * Description : Runs a message of player input. A message may hold a batch of commands separated by ';' or new lines, for instance
+     * "MOVE N;MOVE N;LOOK", so that a player need not wait for a round trip per command. Each command is a round of its own, so the
+     * enemies act between them exactly as if the commands had been sent one by one, and the responses of every round are returned together.
+     * A message without a separator is a single command, exactly as before.
+     *
+     * @param str The player input.
+     * @return The responses of every command run, in order.
+     */
     public ArrayList<String> feedInput(String str)
     {
-        return this.Update(str);
+        if (str.indexOf(';') == -1 && str.indexOf('\n') == -1) return this.Update(str);
+        ArrayList<String> res = new ArrayList<>();
+        int n_commands = 0;
+        for (String command : str.split("[;\n]")) {
+            command = command.trim();
+            //Explanation : Blank commands, such as after a trailing separator, are skipped rather than run as invalid commands.
+            if (command.isEmpty()) continue;
+            //Explanation : The rest of the batch is dropped once the game is over, or once the session has abandoned this message.
+            if (this.game_over || Thread.currentThread().isInterrupted()) break;
+            //Explanation : A batch runs under the deadline of a single message, so its length is capped.
+            if (++n_commands > MAX_BATCHED_COMMANDS) {
+                res.add("Only the first " + MAX_BATCHED_COMMANDS + " commands of a message are run.");
+                break;
+            }
+            res.addAll(this.Update(command));
+        }
+        return res;
     }
 };
@@ -0,0 +1,156 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//One user's DoD game and the messages waiting to run on it.
+//Messages for a session run one at a time in arrival order, while different sessions share the DoD client's pool,
+//so a slow game only delays its own player.
+public final class GameSession implements Runnable
+{
+    private final DoDClient client;
+    private final String client_name;
+    private final ConcurrentLinkedQueue<Runnable> mailbox;
+    private final AtomicBoolean scheduled;
+    private Game game;
+    private boolean running_command;
+    private boolean abandoned;
+
+    public GameSession(DoDClient client, String client_name)
+    {
+        this.client = client;
+        this.client_name = client_name;
+        this.mailbox = new ConcurrentLinkedQueue<>();
+        this.scheduled = new AtomicBoolean(false);
+        this.running_command = false;
+        this.abandoned = false;
+    }
+    //Loads the map off the receiver thread, then greets the player.
+    public void start()
+    {
+        this.post(this::load);
+    }
+    public void feed(String input)
+    {
+        this.post(() -> this.execute(input));
+    }
+    @Override
+    public void run()
+    {
+        //One message per turn, so a busy game hands its worker back to the others between commands.
+        Runnable message = this.mailbox.poll();
+        try
+        {
+            if(message != null && !this.isAbandoned()) message.run();
+        }
+        catch(Exception exception)
+        {
+            exception.printStackTrace();
+        }
+        finally
+        {
+            this.scheduled.set(false);
+            if(!this.mailbox.isEmpty()) this.schedule();
+        }
+    }
+
+    private void post(Runnable message)
+    {
+        this.mailbox.offer(message);
+        this.schedule();
+    }
+    private void schedule()
+    {
+        if(this.scheduled.compareAndSet(false, true)) this.client.getGamePool().execute(this);
+    }
+    //A game that fails to load ends the session at once, so the player is sent back to the server rather than left waiting in DoD mode.
+    private void load()
+    {
+        try
+        {
+            Game game = new Game(false);
+            game.SetParallelDecisions(this.client.getParallelDecisions());
+            if(!game.Load(15,1)) throw new IllegalStateException("The map could not be loaded.");
+            this.game = game;
+        }
+        catch(Exception exception)
+        {
+            exception.printStackTrace();
+            this.client.removePlayer(this.client_name, this);
+            this.send("The Dungeons of Doom could not be opened: " + exception.getMessage() + " Returning to server...", Packet.PacketType.DOD_GAME_OVER);
+            return;
+        }
+        this.send("Welcome to the Dungeons of Doom! Enjoy your game!", Packet.PacketType.DOD_CONNECT_GRANTED);
+    }
+    private void execute(String input)
+    {
+        //The game failed to load and the player has already been sent back. Anything they sent before hearing of it is dropped.
+        if(this.game == null) return;
+        synchronized(this)
+        {
+            if(this.abandoned) return;
+            this.running_command = true;
+        }
+        Thread worker = Thread.currentThread();
+        ScheduledFuture<?> deadline = this.client.getWatchdog().schedule(() -> this.abandon(worker), DoDClient.command_deadline_ms, TimeUnit.MILLISECONDS);
+        ArrayList<String> game_responses;
+        try
+        {
+            game_responses = this.game.feedInput(input);
+        }
+        finally
+        {
+            deadline.cancel(false);
+            synchronized(this)
+            {
+                this.running_command = false;
+            }
+        }
+        if(this.isAbandoned())
+        {
+            //The player has already been told. Don't carry the interrupt into the next session's message.
+            Thread.interrupted();
+            return;
+        }
+        String game_response_string = "\n" + String.join("\n", game_responses);
+        Packet.PacketType client_message_type;
+        if(this.game.IsGameOver())
+        {
+            client_message_type = Packet.PacketType.DOD_GAME_OVER;
+            this.client.removePlayer(this.client_name, this);
+            game_response_string = game_response_string + "\n" + "Returning to server...";
+        }
+        else client_message_type = Packet.PacketType.DOD_GAME_MESSAGE;
+        this.send(game_response_string, client_message_type);
+    }
+    //Called by the watchdog when a command overruns its deadline.
+    //A Java thread cannot be stopped safely, so the game is closed and its worker interrupted;
+    //whatever the command eventually returns is thrown away.
+    private void abandon(Thread worker)
+    {
+        synchronized(this)
+        {
+            if(!this.running_command || this.abandoned) return;
+            this.abandoned = true;
+            worker.interrupt();
+        }
+        this.client.removePlayer(this.client_name, this);
+        this.send("Your game stopped responding and has been closed. Returning to server...", Packet.PacketType.DOD_GAME_OVER);
+    }
+    private synchronized boolean isAbandoned()
+    {
+        return this.abandoned;
+    }
+    private void send(String data, Packet.PacketType packet_type)
+    {
+        try
+        {
+            this.client.send(new Packet(this.client_name, data, packet_type, SenderType.DODCLIENT));
+        }
+        catch(Exception exception)
+        {
+            exception.printStackTrace();
+        }
+    }
+}
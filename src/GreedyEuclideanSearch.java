@@ -91,7 +91,7 @@ public class GreedyEuclideanSearch extends SearchAlgorithm {
                 continue;
             }
             //Explanation : Check to see if the tile at this future position is indeed traversable. If not, remove this direction from the traversable directions.
-            char next_tile = this.map_subset.map_subset.get(future_position.y).charAt(future_position.x);
+            char next_tile = this.map_subset.GetTile(future_position.x, future_position.y);
             if (this.map_subset.traversable_tiles.indexOf(next_tile) == -1 && next_tile != this.target_token) continue;
             res.put(pair.getKey(), pair.getValue());
         }
@@ -134,7 +134,7 @@ public class GreedyEuclideanSearch extends SearchAlgorithm {
         for (int y = 0; y < map_subset.subset_dim.y; ++y) {
             for (int x = 0; x < map_subset.subset_dim.x; ++x) {
                 //Explanation : Check if the subset tile is our token tile.
-                char current_ch = this.map_subset.map_subset.get(y).charAt(x);
+                char current_ch = this.map_subset.GetTile(x, y);
                 if (current_ch == this.target_token) {
                     //Explanation : If so, update the target position, and reset the counter.
                     this.local_target_position = new Vector2(x, y);
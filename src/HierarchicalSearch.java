@@ -0,0 +1,142 @@
+import java.util.ArrayList;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Description : A search algorithm for very large maps, which plans over the clusters of the map rather than over its tiles (HPA*).
+ * Here is how the algorithm operates :
+ * -It never requests a vision update. Instead, it asks the game where the nearest hero is.
+ * PLANNING
+ * -Finds an abstract route to the hero through the entrances between clusters, using the ClusterGraph shared by every game on the map.
+ * -Keeps that route until the hero leaves the cluster it was in, or the route can no longer be followed.
+ * MOVEMENT
+ * -Only the stretch of the route inside its current cluster is turned into moves, and only when it is walked.
+ * -If no hero can be reached, it wanders onto a random traversable neighbour.
+ */
+public class HierarchicalSearch extends SearchAlgorithm {
+    private static final int[] DIRECTION_X = {0, 1, 0, -1};
+    private static final int[] DIRECTION_Y = {-1, 0, 1, 0};
+    /**
+     * Description : The graph of the map.
+     */
+    private final ClusterGraph cluster_graph;
+    /**
+     * Description : Asked for the position of the nearest hero, given the position of the enemy, both packed by Coord. Returns Coord.NONE if there is none.
+     */
+    private final LongUnaryOperator target_locator;
+    /**
+     * Description : The tiles of the current abstract route, the next one to head for, and the cluster the hero was in when it was planned.
+     */
+    private final int[] route;
+    private int route_length = 0;
+    private int route_index = 0;
+    private int route_goal_cluster = -1;
+    /**
+     * Description : The last hero tile no route was found to. Planning is not tried again until the hero moves, since the answer would be the same.
+     */
+    private int unreachable_goal_cell = -1;
+
+    /**
+     * Description : Constructor which asks for a target to seek, the graph of the map, and a way of locating the target.
+     *
+     * @param target         The seeked target.
+     * @param cluster_graph  The hierarchical graph of the map.
+     * @param target_locator Returns the packed position of the nearest target, given the packed position of the enemy.
+     */
+    public HierarchicalSearch(char target, ClusterGraph cluster_graph, LongUnaryOperator target_locator) {
+        super(target);
+        this.cluster_graph = cluster_graph;
+        this.target_locator = target_locator;
+        this.route = new int[cluster_graph.GetNodeCount() + 1];
+    }
+
+    /**
+     * Description : Overrides the abstract base method and returns the next step along the route to the target.
+     *
+     * @param start_position The start position of the entity in global coordinates.
+     * @return The verdict command of the search, for instance {"MOVE", "N"}.
+     */
+    @Override
+    public ArrayList<String> ExecuteSearch(Vector2 start_position) {
+        return ExecuteSearch(start_position.x, start_position.y);
+    }
+
+    /**
+     * Description : Returns the next step along the route to the target as a command, for the callers which still want one.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The verdict command of the search, for instance {"MOVE", "N"}.
+     */
+    @Override
+    public ArrayList<String> ExecuteSearch(int start_x, int start_y) {
+        return BotAction.ToCommand(Decide(start_x, start_y));
+    }
+
+    /**
+     * Description : Returns the next step along the route to the target, without allocating a position or a command.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The packed action, for instance BotAction.Move(0) for "MOVE N".
+     */
+    @Override
+    public int Decide(int start_x, int start_y) {
+        final int width = cluster_graph.GetWidth();
+        final int start_cell = start_y * width + start_x;
+        int direction = -1;
+        final long goal = target_locator.applyAsLong(Coord.Pack(start_x, start_y));
+        if (goal != Coord.NONE) {
+            final int goal_cell = Coord.Y(goal) * width + Coord.X(goal);
+            final int goal_cluster = cluster_graph.ClusterOf(goal_cell);
+            //Explanation : The hero may have moved within its cluster since the route was planned. The final stretch simply heads for where they are now.
+            if (route_length > 0 && goal_cluster == route_goal_cluster) {
+                route[route_length - 1] = goal_cell;
+                direction = FollowRoute(start_cell, width);
+            }
+            //Explanation : Plan again if there was no usable route.
+            if (direction == -1 && goal_cell != unreachable_goal_cell) {
+                route_length = cluster_graph.FindRoute(start_cell, goal_cell, cluster_graph.GetQuery(), route);
+                unreachable_goal_cell = (route_length == -1) ? goal_cell : -1;
+                route_length = Math.max(route_length, 0);
+                route_index = 0;
+                route_goal_cluster = goal_cluster;
+                direction = FollowRoute(start_cell, width);
+            }
+        }
+        if (direction == -1) direction = Wander(start_x, start_y);
+        //Explanation : We cannot move at all, and so there is no action.
+        if (direction == -1) return BotAction.NONE;
+        return BotAction.Move(direction);
+    }
+
+    /**
+     * Description : Returns the first step toward the next tile of the route, refining the route only as far as that tile.
+     *
+     * @return The index of the direction, or -1 if the route is finished or cannot be followed from here.
+     */
+    private int FollowRoute(int start_cell, int width) {
+        while (route_index < route_length && route[route_index] == start_cell) ++route_index;
+        if (route_index == route_length) return -1;
+        final int next_cell = route[route_index];
+        //Explanation : Crossing an entrance is a single step into the neighbouring cluster.
+        //Explanation : Coordinates are compared rather than cell indices, since the cells either side of a row boundary are also one index apart.
+        final int start_x = start_cell % width;
+        final int start_y = start_cell / width;
+        for (int direction = 0; direction < 4; ++direction) {
+            if (next_cell % width == start_x + DIRECTION_X[direction] && next_cell / width == start_y + DIRECTION_Y[direction]) return direction;
+        }
+        return cluster_graph.StepWithinCluster(start_cell, next_cell, cluster_graph.GetQuery());
+    }
+
+    /**
+     * @return The index of a random traversable direction, or -1 if there is none.
+     */
+    private int Wander(int x, int y) {
+        final int first = NextRandom(4);
+        for (int i = 0; i < 4; ++i) {
+            final int direction = (first + i) & 3;
+            if (cluster_graph.IsTraversable(x + DIRECTION_X[direction], y + DIRECTION_Y[direction])) return direction;
+        }
+        return -1;
+    }
+};
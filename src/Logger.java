@@ -45,12 +45,13 @@ public final class Logger {
 
     /**
      * Description : Registers a given log, by looking up the log code.
+     * Synchronized, since the DoD client now runs several games at once on its pool.
      *
      * @param log_code               The reference log code.
      * @param additional_information Any additional information about the log.
      * @param print_to_console       Whether or not the log should be printed to the console.
      */
-    public static String Log(String log_code, String additional_information, boolean print_to_console) {
+    public static synchronized String Log(String log_code, String additional_information, boolean print_to_console) {
         if (!log_codes.containsKey(log_code)) return "";
         logs.add(log_code);
 //        if (!print_to_console) return log_codes.get
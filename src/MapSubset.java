@@ -1,21 +1,21 @@
-import java.util.ArrayList;
-
 /**
  * Description : Helper class which transmits information about a subset of the registered map, to different objects.
  * For instance, if a future programmer wants to design a new search algorithm for his bot, then he has lots of flexibility due to the wealth of information provided by this class.
  * Notice that the attributes of the map subset are public and final. This reduces code bloat, while giving the user the correct amount
  * of control and the information that they require.
+ * The subset is a view which is refilled in place each time its owner looks again, so the corners are updated rather than replaced,
+ * and the tiles live in one flat buffer which is only rendered into text when a human asks to see it.
  */
 public class MapSubset {
 
     /**
      * Description :  The top left coordinate of the subset map.
      */
-    public final Vector2 subset_world_top_left;
+    public final Vector2 subset_world_top_left = new Vector2();
     /**
      * Description :  The bot right coordinate of the subset map.
      */
-    public final Vector2 subset_world_bottom_right;
+    public final Vector2 subset_world_bottom_right = new Vector2();
     /**
      * Description :  The dimensions of the subset map.
      */
@@ -29,25 +29,84 @@ public class MapSubset {
      */
     public final String traversable_tiles;
     /**
-     * Description : The actual map subset as an array of strings. This is not final, as it is changed, and should be able to be changed by other classes.
+     * Description : The tiles of the subset, row after row, indexed by y * subset_dim.x + x in local coordinates.
      */
-    public ArrayList<String> map_subset = new ArrayList<String>();
+    private final char[] tiles;
 
     /**
-     * Description : Constructor which initialises all of the final arguments.
+     * Description : Constructor which initialises all of the final arguments. The subset is empty until it has been centred and filled by the map manager.
      *
-     * @param top_left          The top left corner of the subset.
-     * @param bot_right         The bottom right corner of the subset.
      * @param map_dim           The dimensions of the full map.
-     * @param subset_dim        The dimensions of the subset.
+     * @param subset_dim        The dimensions of the subset. This must be odd, so as to be able to produce a balanced centre, and is rounded up otherwise.
      * @param traversable_tiles The tiles onto which a given player can traverse.
      */
-    MapSubset(Vector2 top_left, Vector2 bot_right, Vector2 map_dim, Vector2 subset_dim, String traversable_tiles) {
-        this.subset_world_top_left = top_left;
-        this.subset_world_bottom_right = bot_right;
+    MapSubset(Vector2 map_dim, Vector2 subset_dim, String traversable_tiles) {
+        //Explanation : The dimension of the subset must be odd. The caller's vector is left untouched.
+        this.subset_dim = new Vector2(subset_dim.x | 1, subset_dim.y | 1);
         this.full_map_dim = map_dim;
-        this.subset_dim = subset_dim;
         this.traversable_tiles = traversable_tiles;
+        this.tiles = new char[this.subset_dim.x * this.subset_dim.y];
+    }
+
+    /**
+     * Description : Moves the subset so that it is centred on the argument position. The tiles must be refilled afterwards.
+     *
+     * @param centre_x The world column on which the subset is centred.
+     * @param centre_y The world row on which the subset is centred.
+     */
+    void Centre(int centre_x, int centre_y) {
+        final int offset_x = (this.subset_dim.x - 1) / 2;
+        final int offset_y = (this.subset_dim.y - 1) / 2;
+        this.subset_world_top_left.x = centre_x - offset_x;
+        this.subset_world_top_left.y = centre_y - offset_y;
+        this.subset_world_bottom_right.x = centre_x + offset_x;
+        this.subset_world_bottom_right.y = centre_y + offset_y;
+    }
+
+    /**
+     * Description : Returns the tile at the given local coordinates.
+     *
+     * @param x The local column.
+     * @param y The local row.
+     * @return The tile.
+     */
+    public char GetTile(int x, int y) {
+        return this.tiles[y * this.subset_dim.x + x];
+    }
+
+    /**
+     * Description : Sets the tile at the given local coordinates.
+     *
+     * @param x    The local column.
+     * @param y    The local row.
+     * @param tile The new tile.
+     */
+    public void SetTile(int x, int y, char tile) {
+        this.tiles[y * this.subset_dim.x + x] = tile;
+    }
+
+    /**
+     * Description : Returns whether the given local coordinates lie within the subset.
+     *
+     * @param x The local column.
+     * @param y The local row.
+     * @return Whether the coordinates are inside.
+     */
+    public boolean Contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.subset_dim.x && y < this.subset_dim.y;
+    }
+
+    /**
+     * Description : Renders the subset as text, one line per row. This is the only place the subset becomes a string.
+     *
+     * @return The rendered subset.
+     */
+    public String Render() {
+        StringBuilder map_string = new StringBuilder(this.tiles.length + this.subset_dim.y);
+        for (int y = 0; y < this.subset_dim.y; ++y) {
+            map_string.append(this.tiles, y * this.subset_dim.x, this.subset_dim.x).append('\n');
+        }
+        return map_string.toString();
     }
 
     /**
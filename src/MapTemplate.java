@@ -0,0 +1,332 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description : An immutable, fully validated map file. Each map file is read from disk only once, and the resulting template
+ * is shared by every game played on it. Anything that changes during a game (such as picked up gold) is kept by the game's own
+ * map manager as a small overlay, so creating a new game costs nothing more than a cache lookup.
+ */
+public final class MapTemplate {
+    /**
+     * Description : Every template read so far, keyed by file name.
+     * Note that the parameters registered by the first game to read a file are the ones used to validate it. In Dungeons of Doom,
+     * every game registers the same parameters, so this is harmless.
+     */
+    private static final ConcurrentHashMap<String, MapTemplate> templates = new ConcurrentHashMap<>();
+    /**
+     * Description : How many default tiles surround the map on every side. A field of vision reaching off the edge of the map by
+     * up to this many tiles reads straight from the grid, without any special casing.
+     */
+    public static final int BORDER = 8;
+    /**
+     * Description : The tiles as one flat array of rows, each BORDER + width + BORDER long, surrounded by BORDER rows of default tiles.
+     * Tiles are stored as single bytes, so tile characters must be within Latin-1.
+     */
+    private final byte[] grid;
+    /**
+     * Description : The length of one row of the grid, border included.
+     */
+    private final int stride;
+    private final byte default_tile;
+    /**
+     * Description : The final argument of every registered parameter, after defaults and the file have been applied.
+     */
+    private final HashMap<String, String> map_arguments;
+    /**
+     * Description : The row-major cell index (y * width + x) of every gold tile, in ascending order.
+     * A game identifies a piece of gold by its position in this array.
+     */
+    private final int[] gold_cells;
+    /**
+     * Description : The row-major cell index of every tile which players may spawn on, in ascending order. Shared by every game, so never modified.
+     */
+    private final int[] spawn_cells;
+    /**
+     * Description : The hierarchical path finding graph of the map. Built by the first game which needs it, then shared.
+     */
+    private volatile ClusterGraph cluster_graph = null;
+    private final int width;
+    private final int height;
+
+    /**
+     * Description : Private constructor. Templates are only ever produced by Load.
+     * @param map_tiles     The padded map tiles.
+     * @param map_arguments The arguments of every parameter.
+     */
+    private MapTemplate(ArrayList<String> map_tiles, HashMap<String, String> map_arguments) {
+        this.map_arguments = map_arguments;
+        this.width = map_tiles.get(0).length();
+        this.height = map_tiles.size();
+        this.stride = this.width + 2 * BORDER;
+        this.default_tile = (byte) map_arguments.get("default_tile").charAt(0);
+        this.grid = new byte[this.stride * (this.height + 2 * BORDER)];
+        Arrays.fill(this.grid, this.default_tile);
+        final char gold_tile = map_arguments.get("gold_tile").charAt(0);
+        final String spawnable_tiles = map_arguments.get("spawnable_tiles");
+        int[] gold = new int[this.width * this.height];
+        int n_gold = 0;
+        int[] spawn = new int[this.width * this.height];
+        int n_spawn = 0;
+        for (int y = 0; y < this.height; ++y) {
+            final String row = map_tiles.get(y);
+            final int row_start = (y + BORDER) * this.stride + BORDER;
+            for (int x = 0; x < this.width; ++x) {
+                this.grid[row_start + x] = (byte) row.charAt(x);
+                if (row.charAt(x) == gold_tile) gold[n_gold++] = y * this.width + x;
+                if (spawnable_tiles.indexOf(row.charAt(x)) != -1) spawn[n_spawn++] = y * this.width + x;
+            }
+        }
+        this.gold_cells = Arrays.copyOf(gold, n_gold);
+        this.spawn_cells = Arrays.copyOf(spawn, n_spawn);
+    }
+
+    /**
+     * Description : Returns the shared template for the file, reading it on first use. Concurrent requests for the same file wait for one read.
+     * @param file_name           The name of the map file.
+     * @param map_parameters      The parameters registered by the requesting map manager, used to validate the file on first read.
+     * @param EXAMINER_DEBUG_MODE Whether or not the examiner would like to see useful metrics of the map when it is read.
+     * @return The template, or null if the file could not be read. Failed reads are not cached, so the file can be fixed and retried.
+     */
+    public static MapTemplate Load(String file_name, HashMap<String, MapParameterChecker> map_parameters, boolean EXAMINER_DEBUG_MODE) {
+        return templates.computeIfAbsent(file_name, (String name) -> {
+            try (BufferedReader file_buffer = new BufferedReader(new FileReader(name))) {
+                return ReadFileBuffer(file_buffer, name, map_parameters, EXAMINER_DEBUG_MODE);
+            } catch (IOException exception) {
+                Logger.Log("MM00", name + ". Please include relevant file extensions.", true);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return The number of columns in the map.
+     */
+    public int GetWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return The number of rows in the map.
+     */
+    public int GetHeight() {
+        return this.height;
+    }
+
+    /**
+     * Description : Returns the tile as it was read from the file, or the default tile for positions off the map. Never allocates.
+     * @param x The column.
+     * @param y The row.
+     * @return The tile.
+     */
+    public char GetTile(int x, int y) {
+        final int grid_x = x + BORDER;
+        final int grid_y = y + BORDER;
+        //Explanation : Anything within the border is a plain array read. Only positions further out need the default.
+        if (grid_x < 0 || grid_y < 0 || grid_x >= this.stride || grid_y >= this.height + 2 * BORDER) return (char) (this.default_tile & 0xFF);
+        return (char) (this.grid[grid_y * this.stride + grid_x] & 0xFF);
+    }
+
+    /**
+     * Description : Checks whether or not a position lies on the map itself, rather than its border.
+     * @param x The column.
+     * @param y The row.
+     * @return Whether or not the position is on the map.
+     */
+    public boolean Contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height;
+    }
+
+    /**
+     * Description : Identifies a gold tile by its position within gold_cells.
+     * @param x The column.
+     * @param y The row.
+     * @return The gold index, or -1 if the tile did not hold gold in the file.
+     */
+    public int GetGoldIndex(int x, int y) {
+        final int index = Arrays.binarySearch(this.gold_cells, y * this.width + x);
+        return (index < 0) ? -1 : index;
+    }
+
+    /**
+     * @return The cell index of every spawnable tile. The array is shared and must not be modified.
+     */
+    public int[] GetSpawnCells() {
+        return this.spawn_cells;
+    }
+
+    /**
+     * Description : Returns the hierarchical path finding graph of the map, building it on first use. Concurrent first requests wait for one build.
+     * @return The graph.
+     */
+    public ClusterGraph GetClusterGraph() {
+        ClusterGraph graph = this.cluster_graph;
+        if (graph != null) return graph;
+        synchronized (this) {
+            if (this.cluster_graph == null) {
+                this.cluster_graph = new ClusterGraph(this, this.map_arguments.get("fill_tile") + this.map_arguments.get("gold_tile") + this.map_arguments.get("exit_tile"));
+            }
+            return this.cluster_graph;
+        }
+    }
+
+    /**
+     * @param param_name The name of the parameter.
+     * @return The argument of the parameter, or null if no such parameter was registered.
+     */
+    public String GetArgument(String param_name) {
+        return this.map_arguments.get(param_name);
+    }
+
+    /**
+     * Description : Iterates through the first lines of the file in search of our map parameters.
+     *
+     * @param file_buffer    The buffer for the map file.
+     * @param map_parameters The registered parameters, whose arguments are set as they are found.
+     * @return Whether or not the parse was successful
+     * @throws IOException BufferedReader IO exceptions are not hidden, unlike the scanner.
+     */
+    private static boolean ParseMapParameters(BufferedReader file_buffer, HashMap<String, MapParameterChecker> map_parameters) throws IOException {
+        /*
+            Explanation : I have given the user the choice to specify whether or not their registered map
+            parameter is essential or not.
+
+            If an essential parameter is not found within the first lines of the file, then the map will not read successfully.
+
+            If all essential parameters have been found, and we encounter an unrecognised line (one which does not contain a parameter)
+            then we simply stop the search successfully.
+         */
+
+
+        //Explanation : Tracking the number of parameters we have found during our read.
+        int found_n_parameters = 0;
+        final int n_parameters = map_parameters.size();
+
+        //Explanation : Tracking the number of essential parameters we have found during our read.
+        int found_n_essential_parameters = 0;
+        //Explanation : Count the number of required essential parameters.
+        int required_essential_parameters = (int) (map_parameters.values().stream().filter(val -> val.IsEssential()).count());
+        String current_line;
+        //Explanation : The max buffer read size before we are able to revert back to the marked position with BufferedReader::reset
+        final int MAX_BUFFER_SIZE = 1000;
+        //Explanation : Iterate through each of the lines until we find all parameters.
+        while ((found_n_parameters != n_parameters)) {
+            //Explanation : Mark the point of the current line.
+            file_buffer.mark(MAX_BUFFER_SIZE);
+            /*
+                Explanation : You may be thinking.. Why not put this condition as part of the while condition(s)?
+                The reason is because I need to mark the position of this line before I actually read it, for when I need to revert back.
+             */
+            if ((current_line = file_buffer.readLine()) == null) break;
+            //Explanation : Try to find any of our registered parameters from within the current line.
+            boolean found_parameter = false;
+            for (HashMap.Entry<String, MapParameterChecker> pair : map_parameters.entrySet()) {
+                //Explanation : The parameter does not exist within our line.
+                if (current_line.indexOf(pair.getKey()) == -1 || current_line.length() == pair.getKey().length())
+                    continue;
+                //Explanation : The parameter name exists within the line. Obtain the rest of the line (after the name).
+                String parameter_argument = current_line.substring(pair.getKey().length() + 1);
+                //Explanation : Try to initialise the parameter argument.
+                if (pair.getValue().SetParameterArgument(parameter_argument)) {
+                    //Explanation : Initialisation of the parameter was successful.
+                    if (pair.getValue().IsEssential()) ++found_n_essential_parameters;
+                    ++found_n_parameters;
+                    found_parameter = true;
+                    break;
+                }
+            }
+            //Explanation : If we encounter an unrecognised line, and we have read our essential parameters, it's possible that the users map array has started.
+            if (!found_parameter) {
+                //Explanation : We encountered an unrecognised line without meeting all of our essential parameters. Unsuccessful read.
+                if (found_n_essential_parameters != required_essential_parameters) return false;
+                //Explanation : Go back to the line before the current one, as it may be the first line of the users map.
+                file_buffer.reset();
+                return true;
+            }
+        }
+        return (found_n_essential_parameters == required_essential_parameters);
+    }
+
+    /**
+     * Description : The file reading process is split into two parts : Reading the essential map parameters, and reading the map array itself. This function calls the necessary functions to facilitate both.
+     * @param file_buffer         The buffer of the map file.
+     * @param file_name           The name of the file, for logging purposes.
+     * @param map_parameters      The registered parameters.
+     * @param EXAMINER_DEBUG_MODE Whether or not the examiner would like to see useful metrics of the game state.
+     * @return The template, or null if the file was not a valid map.
+     * @throws IOException BufferedReader IO exceptions are not hidden, unlike the scanner.
+     */
+    private static MapTemplate ReadFileBuffer(BufferedReader file_buffer, String file_name, HashMap<String, MapParameterChecker> map_parameters, boolean EXAMINER_DEBUG_MODE) throws IOException {
+
+        //Explanation : Find the map parameters within the first few lines. All essential parameters must be found.
+        if (!ParseMapParameters(file_buffer, map_parameters)) {
+            Logger.Log("MM01", "File name - " + file_name, true);
+            return null;
+        }
+        //Explanation : Snapshot the arguments, so that the template never changes after this point.
+        HashMap<String, String> map_arguments = new HashMap<>();
+        map_parameters.forEach((key, value) -> map_arguments.put(key, value.GetArgument()));
+        final String valid_tiles = map_arguments.get("fill_tile") + map_arguments.get("gold_tile") + map_arguments.get("exit_tile") + map_arguments.get("wall_tile");
+        char default_tile = map_arguments.get("default_tile").charAt(0);
+        //Explanation : After each essential parameter has been found, iterate through the remainder of the file, which should be the map array itself.
+        ArrayList<String> map_tiles = new ArrayList<>();
+        int y = 0;
+        String line;
+        while ((line = file_buffer.readLine()) != null) {
+            StringBuilder dynamic_line = new StringBuilder(line);
+            //Explanation : Iterate through each character of the current line.
+            for (int x = 0; x < dynamic_line.length(); ++x) {
+                //Explanation : Check to see if the token is a registered tile.
+                char current_tile = dynamic_line.charAt(x);
+                if (valid_tiles.indexOf(current_tile) != -1 && current_tile <= 0xFF) continue;
+                //Explanation : If unregistered, default the tile.
+                Logger.Log("MM02", "{" + x + "," + y + "} of token " + current_tile + " in the map file of name " + file_name + ". Defaulting tile to " + default_tile + "...", true);
+                dynamic_line.setCharAt(x, default_tile);
+            }
+            //Explanation : Append the map tile line to our map array.
+            map_tiles.add(dynamic_line.toString());
+            ++y;
+        }
+        //Explanation : The map must have at least one row.
+        if (map_tiles.isEmpty()) {
+            Logger.Log("MM03", "", true);
+            return null;
+        }
+        //Explanation : Make all rows a constant length.
+        final int MAX_ROW_SIZE = map_tiles.stream().map(String::length).max(Integer::compareTo).get();
+        for (int i = 0; i < map_tiles.size(); ++i) {
+            final String current_row = map_tiles.get(i);
+            if (current_row.length() < MAX_ROW_SIZE)
+                map_tiles.set(i, map_tiles.get(i) + Character.toString(default_tile).repeat(MAX_ROW_SIZE - current_row.length()));
+        }
+        MapTemplate template = new MapTemplate(map_tiles, map_arguments);
+        Utility.PrintToConsole("********* MAP READ SUCCESSFUL *********");
+        //Explanation : Print metrics if examiner debug mode is active.
+        if (EXAMINER_DEBUG_MODE) template.PrintMapMetrics();
+        return template;
+    }
+
+    /**
+     * Description : Prints the metrics of the map (used in examiner debug mode).
+     */
+    public void PrintMapMetrics() {
+        //Explanation : Print all registered map parameters.
+        Utility.PrintToConsole("*** START REGISTERED PARAMETERS ***");
+        this.map_arguments.forEach((key, value) -> {
+            Utility.PrintToConsole("* " + key + " : " + value);
+        });
+        Utility.PrintToConsole("*** END REGISTERED PARAMETERS ***\n");
+        //Explanation : Print a preview of the map (with no players)
+        System.out.println(("*** START MAP PREVIEW ***"));
+        char[] tile_row = new char[this.width];
+        for (int y = 0; y < this.height; ++y) {
+            for (int x = 0; x < this.width; ++x) tile_row[x] = this.GetTile(x, y);
+            Utility.PrintToConsole(new String(tile_row));
+        }
+        System.out.println(("*** END MAP PREVIEW ***\n"));
+    }
+}
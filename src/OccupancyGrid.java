@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Description : An index of which players stand on which cell of the map, kept up to date by the players themselves as they move.
+ * Each cell holds the head of an intrusive, doubly linked list of the players standing on it, threaded through arrays indexed by
+ * the player's index in the game. Moving a player, asking whether a cell is taken, or asking whether a hero and an enemy share
+ * a cell are all constant time, however many players the game holds.
+ * The grid also keeps the game's spawn index in step, taking a cell out of it when the first player arrives and returning it when the last one leaves.
+ */
+public final class OccupancyGrid {
+    /**
+     * Description : Marks the end of a cell's list, or an empty cell.
+     */
+    public static final int NONE = -1;
+    /**
+     * Description : The dimensions of the map being indexed.
+     */
+    private final int width;
+    private final int height;
+    /**
+     * Description : The first player standing on each cell, indexed by y * width + x.
+     */
+    private final int[] cell_heads;
+    /**
+     * Description : How many heroes and enemies stand on each cell. A cell holding both is a lost game.
+     */
+    private final int[] heroes_in_cell;
+    private final int[] enemies_in_cell;
+    /**
+     * Description : Per player links, indexed by player index. cells holds the cell each player is listed under.
+     */
+    private int[] next = new int[8];
+    private int[] previous = new int[8];
+    private int[] cells = new int[8];
+    private boolean[] humans = new boolean[8];
+    /**
+     * Description : The free spawnable cells of the game, updated as cells become occupied and empty.
+     */
+    private final SpawnIndex spawn_index;
+
+    /**
+     * Description : Creates an empty grid covering the whole map.
+     *
+     * @param map_dim     The dimensions of the map.
+     * @param spawn_index The spawn index of the game, with every spawnable cell free.
+     */
+    public OccupancyGrid(Vector2 map_dim, SpawnIndex spawn_index) {
+        this.spawn_index = spawn_index;
+        this.width = map_dim.x;
+        this.height = map_dim.y;
+        this.cell_heads = new int[this.width * this.height];
+        Arrays.fill(this.cell_heads, NONE);
+        this.heroes_in_cell = new int[this.width * this.height];
+        this.enemies_in_cell = new int[this.width * this.height];
+    }
+
+    /**
+     * Description : Places a new player on the grid.
+     *
+     * @param player_index The index of the player in the game.
+     * @param is_human     Whether the player is a hero.
+     * @param x            The column the player stands on.
+     * @param y            The row the player stands on.
+     */
+    public void Add(int player_index, boolean is_human, int x, int y) {
+        //Explanation : The link arrays grow with the player count, doubling so that registering many enemies stays cheap.
+        if (player_index >= this.next.length) {
+            final int capacity = Math.max(this.next.length * 2, player_index + 1);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.previous = Arrays.copyOf(this.previous, capacity);
+            this.cells = Arrays.copyOf(this.cells, capacity);
+            this.humans = Arrays.copyOf(this.humans, capacity);
+        }
+        this.humans[player_index] = is_human;
+        this.Link(player_index, this.CellIndex(x, y));
+    }
+
+    /**
+     * Description : Moves a player which is already on the grid onto another cell.
+     *
+     * @param player_index The index of the player in the game.
+     * @param x            The new column.
+     * @param y            The new row.
+     */
+    public void Move(int player_index, int x, int y) {
+        final int cell = this.CellIndex(x, y);
+        if (cell == this.cells[player_index]) return;
+        this.Unlink(player_index);
+        this.Link(player_index, cell);
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return Whether any player stands on the cell. Cells outside the map are never occupied.
+     */
+    public boolean IsOccupied(int x, int y) {
+        return this.Contains(x, y) && this.cell_heads[y * this.width + x] != NONE;
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return Whether a hero and an enemy share the cell.
+     */
+    public boolean IsContested(int x, int y) {
+        if (!this.Contains(x, y)) return false;
+        final int cell = y * this.width + x;
+        return this.heroes_in_cell[cell] > 0 && this.enemies_in_cell[cell] > 0;
+    }
+
+    /**
+     * Description : Returns the first player standing on a cell. The rest are reached through GetNext.
+     *
+     * @param x The column.
+     * @param y The row.
+     * @return The index of the first player, or NONE.
+     */
+    public int GetFirst(int x, int y) {
+        return this.Contains(x, y) ? this.cell_heads[y * this.width + x] : NONE;
+    }
+
+    /**
+     * @param player_index The index of a player on the grid.
+     * @return The index of the next player on the same cell, or NONE.
+     */
+    public int GetNext(int player_index) {
+        return this.next[player_index];
+    }
+
+    /**
+     * @param x The column.
+     * @param y The row.
+     * @return Whether the cell lies within the map.
+     */
+    public boolean Contains(int x, int y) {
+        return x >= 0 && y >= 0 && x < this.width && y < this.height;
+    }
+
+    /**
+     * Description : Returns the cell index of a position. Players can only be placed within the map.
+     */
+    private int CellIndex(int x, int y) {
+        if (!this.Contains(x, y)) throw new IllegalArgumentException("Position [" + x + "," + y + "] is outside the map.");
+        return y * this.width + x;
+    }
+
+    /**
+     * Description : Pushes a player onto the front of a cell's list.
+     */
+    private void Link(int player_index, int cell) {
+        final int head = this.cell_heads[cell];
+        if (head == NONE) this.spawn_index.Take(cell);
+        this.next[player_index] = head;
+        this.previous[player_index] = NONE;
+        if (head != NONE) this.previous[head] = player_index;
+        this.cell_heads[cell] = player_index;
+        this.cells[player_index] = cell;
+        if (this.humans[player_index]) ++this.heroes_in_cell[cell];
+        else ++this.enemies_in_cell[cell];
+    }
+
+    /**
+     * Description : Removes a player from the list of the cell it is currently on.
+     */
+    private void Unlink(int player_index) {
+        final int cell = this.cells[player_index];
+        final int before = this.previous[player_index];
+        final int after = this.next[player_index];
+        if (before != NONE) this.next[before] = after;
+        else this.cell_heads[cell] = after;
+        if (this.cell_heads[cell] == NONE) this.spawn_index.Release(cell);
+        if (after != NONE) this.previous[after] = before;
+        if (this.humans[player_index]) --this.heroes_in_cell[cell];
+        else --this.enemies_in_cell[cell];
+    }
+};
@@ -0,0 +1,44 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+//An immutable packet queued for one or more clients.
+//The bytes are produced at most once per codec version and shared by every connection that writes them,
+//so broadcasting to N clients costs one encode rather than N.
+public final class OutboundFrame
+{
+    private final Packet packet;
+    private final AtomicReferenceArray<byte[]> encoded;
+
+    public OutboundFrame(Packet packet)
+    {
+        //Private copy: routing code reuses and mutates Packet objects after queueing them.
+        this.packet = new Packet(packet.sender_name, packet.data, packet.packet_type, packet.sender_type);
+        this.packet.codec_version = packet.codec_version;
+        this.encoded = new AtomicReferenceArray<>(PacketEncoder.MAX_VERSION + 1);
+    }
+    public Packet.PacketType getPacketType()
+    {
+        return this.packet.packet_type;
+    }
+    public byte[] getBytes(int version) throws IOException
+    {
+        byte[] bytes = this.encoded.get(version);
+        if(bytes != null) return bytes;
+        synchronized(this)
+        {
+            bytes = this.encoded.get(version);
+            if(bytes == null)
+            {
+                bytes = PacketEncoder.encode(this.packet, version);
+                this.encoded.set(version, bytes);
+            }
+            return bytes;
+        }
+    }
+    //A read-only view with its own position, so each connection can write the shared bytes independently.
+    public ByteBuffer getBuffer(int version) throws IOException
+    {
+        return ByteBuffer.wrap(this.getBytes(version)).asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Bounded queue of frames waiting to be written to one client.
+//Producers (routing and broadcast) only ever offer; the connection's writer is the only consumer.
+public final class OutboundQueue
+{
+    private final ArrayDeque<OutboundFrame> packets;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final ReentrantLock mutex;
+    private final Condition not_empty;
+    private boolean closed;
+    private long dropped;
+    //How many of the queued frames are chat, so DROP_CHAT knows without a scan when only control frames are left.
+    private int chat_count;
+
+    public OutboundQueue(int capacity, SlowConsumerPolicy policy)
+    {
+        this.packets = new ArrayDeque<>();
+        this.capacity = capacity;
+        this.policy = policy;
+        this.mutex = new ReentrantLock();
+        this.not_empty = this.mutex.newCondition();
+        this.closed = false;
+        this.dropped = 0;
+        this.chat_count = 0;
+    }
+    public static boolean isChat(OutboundFrame frame)
+    {
+        return frame.getPacketType() == Packet.PacketType.BROADCAST || frame.getPacketType() == Packet.PacketType.MESSAGE;
+    }
+    //Returns false when the client has to go: always once full under DISCONNECT, and under DROP_CHAT once control frames alone would overflow.
+    public boolean offer(OutboundFrame frame)
+    {
+        this.mutex.lock();
+        try
+        {
+            if(this.closed) return true;
+            if(this.packets.size() >= this.capacity)
+            {
+                switch(this.policy)
+                {
+                    case DISCONNECT:
+                        return false;
+                    case DROP_OLDEST:
+                        this.removed(this.packets.pollFirst());
+                        ++this.dropped;
+                        break;
+                    case DROP_CHAT:
+                        if(this.chat_count > 0)
+                        {
+                            this.dropOldestChat();
+                            break;
+                        }
+                        //Nothing left to shed but control packets. Chat loses.
+                        if(isChat(frame))
+                        {
+                            ++this.dropped;
+                            return true;
+                        }
+                        //Control packets alone have filled the queue, so the client is not reading at all. Keep the queue bounded.
+                        return false;
+                }
+            }
+            this.packets.addLast(frame);
+            if(isChat(frame)) ++this.chat_count;
+            this.not_empty.signal();
+            return true;
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+    }
+    private boolean dropOldestChat()
+    {
+        Iterator<OutboundFrame> iterator = this.packets.iterator();
+        while(iterator.hasNext())
+        {
+            if(!isChat(iterator.next())) continue;
+            iterator.remove();
+            --this.chat_count;
+            ++this.dropped;
+            return true;
+        }
+        return false;
+    }
+    //Keeps the chat count in step with a frame leaving the queue.
+    private OutboundFrame removed(OutboundFrame frame)
+    {
+        if(frame != null && isChat(frame)) --this.chat_count;
+        return frame;
+    }
+    //Blocks until a packet is available. Returns null once the queue is closed and drained.
+    public OutboundFrame take() throws InterruptedException
+    {
+        this.mutex.lock();
+        try
+        {
+            while(this.packets.isEmpty())
+            {
+                if(this.closed) return null;
+                this.not_empty.await();
+            }
+            return this.removed(this.packets.pollFirst());
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+    }
+    public OutboundFrame poll()
+    {
+        this.mutex.lock();
+        try { return this.removed(this.packets.pollFirst()); }
+        finally { this.mutex.unlock(); }
+    }
+    //Stops accepting packets. Whatever is already queued is still written.
+    public void close()
+    {
+        this.mutex.lock();
+        try
+        {
+            this.closed = true;
+            this.not_empty.signalAll();
+        }
+        finally
+        {
+            this.mutex.unlock();
+        }
+    }
+    public void clear()
+    {
+        this.mutex.lock();
+        try
+        {
+            this.packets.clear();
+            this.chat_count = 0;
+        }
+        finally { this.mutex.unlock(); }
+    }
+    public boolean isDrained()
+    {
+        this.mutex.lock();
+        try { return this.closed && this.packets.isEmpty(); }
+        finally { this.mutex.unlock(); }
+    }
+    public long getDroppedCount()
+    {
+        this.mutex.lock();
+        try { return this.dropped; }
+        finally { this.mutex.unlock(); }
+    }
+}
@@ -32,6 +32,8 @@ public class Packet implements Serializable {
 
     public PacketType packet_type;
     public SenderType sender_type;
+    //Only set on CONNECT_GRANTED: the highest PacketEncoder version the server can read.
+    public int codec_version;
     private void init(String data, PacketType packet_type)
     {
         this.data = data;
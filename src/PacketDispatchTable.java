@@ -0,0 +1,23 @@
+//Routes packets to handlers by PacketType.
+//Handlers are stored by ordinal, so routing a packet is one array load instead of hashing the type's name.
+public final class PacketDispatchTable<HANDLER>
+{
+    private final Object[] handlers;
+
+    public PacketDispatchTable()
+    {
+        this.handlers = new Object[Packet.PacketType.values().length];
+    }
+    //Registers the handler for each of the given types, replacing any handler already there.
+    public PacketDispatchTable<HANDLER> register(HANDLER handler, Packet.PacketType... packet_types)
+    {
+        for(Packet.PacketType packet_type : packet_types) this.handlers[packet_type.ordinal()] = handler;
+        return this;
+    }
+    //Returns null when nothing is registered for the type.
+    @SuppressWarnings("unchecked")
+    public HANDLER get(Packet.PacketType packet_type)
+    {
+        return (HANDLER)this.handlers[packet_type.ordinal()];
+    }
+}
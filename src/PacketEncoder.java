@@ -0,0 +1,347 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//Frames and encodes packets for one connection.
+//A frame is a varint payload length, then one byte naming the codec version of the body, then the body.
+//Version 0 is plain Java serialisation and is always understood, so it is what each side starts with.
+//The server advertises its highest version in CONNECT_GRANTED, the client answers in the lower of the two
+//versions, and the server switches to whatever supported version it then receives.
+//Version 2 is the binary body behind a flag byte. Bodies of at least compression_threshold bytes (game renders, mostly)
+//are deflated against a preset dictionary of map tiles; chat stays uncompressed.
+public final class PacketEncoder
+{
+    public static final int SERIALIZED_VERSION = 0;
+    public static final int BINARY_VERSION = 1;
+    public static final int COMPRESSED_VERSION = 2;
+    public static final int MAX_VERSION = COMPRESSED_VERSION;
+    public static final int MAX_FRAME_SIZE = 1 << 20;
+    public static final int compression_threshold = 512;
+
+    private static final int RAW_BODY = 0;
+    private static final int DEFLATED_BODY = 1;
+    private static final byte[] TILE_DICTIONARY = buildTileDictionary();
+    //zlib streams hold a few hundred kilobytes of native memory each, so they are shared rather than made per connection.
+    private static final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private static final ConcurrentLinkedQueue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    private static final Packet.PacketType[] PACKET_TYPES = Packet.PacketType.values();
+    private static final SenderType[] SENDER_TYPES = SenderType.values();
+
+    private volatile int version = SERIALIZED_VERSION;
+
+    public int getVersion()
+    {
+        return this.version;
+    }
+    //Called by the client once it has read the server's advertised version.
+    public void negotiate(int peer_max_version)
+    {
+        this.version = Math.max(SERIALIZED_VERSION, Math.min(MAX_VERSION, peer_max_version));
+    }
+
+    public byte[] encode(Packet packet) throws IOException
+    {
+        return encode(packet, this.version);
+    }
+    public static byte[] encode(Packet packet, int version) throws IOException
+    {
+        byte[] body;
+        if(version == SERIALIZED_VERSION) body = serialize(packet);
+        else if(version == BINARY_VERSION) body = encodeBinary(packet);
+        else body = compress(encodeBinary(packet));
+        int payload_length = body.length + 1;
+        ByteBuffer frame = ByteBuffer.allocate(varintSize(payload_length) + payload_length);
+        putVarint(frame, payload_length);
+        frame.put((byte)version).put(body);
+        return frame.array();
+    }
+    public void write(OutputStream out, Packet packet) throws IOException
+    {
+        out.write(this.encode(packet));
+        out.flush();
+    }
+    public Packet read(DataInputStream in) throws IOException
+    {
+        int length = checkLength(readVarint(in));
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return this.decode(payload, 0, length);
+    }
+    //Returns the size of the next whole frame (length prefix included), or -1 if the prefix has not fully arrived.
+    public static int peekFrameLength(ByteBuffer buffer) throws IOException
+    {
+        int value = 0;
+        for(int i = 0; i < 5; ++i)
+        {
+            if(buffer.remaining() <= i) return -1;
+            byte b = buffer.get(buffer.position() + i);
+            value |= (b & 0x7F) << (7 * i);
+            if(b >= 0) return i + 1 + checkLength(value);
+        }
+        throw new IOException("Malformed frame length.");
+    }
+    //Consumes exactly one frame. The caller must have checked peekFrameLength first.
+    public Packet decode(ByteBuffer buffer) throws IOException
+    {
+        int length = getVarint(buffer);
+        Packet packet;
+        if(buffer.hasArray())
+        {
+            packet = this.decode(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        }
+        else
+        {
+            byte[] payload = new byte[length];
+            buffer.duplicate().get(payload);
+            packet = this.decode(payload, 0, length);
+        }
+        buffer.position(buffer.position() + length);
+        return packet;
+    }
+    public Packet decode(byte[] payload, int offset, int length) throws IOException
+    {
+        if(length < 1) throw new IOException("Empty frame.");
+        int frame_version = payload[offset];
+        if(frame_version < SERIALIZED_VERSION || frame_version > MAX_VERSION) throw new IOException("Unsupported codec version " + frame_version);
+        //The peer has moved to a newer codec we understand; answer in kind.
+        if(frame_version > this.version) this.version = frame_version;
+        if(frame_version == SERIALIZED_VERSION) return deserialize(payload, offset + 1, length - 1);
+        if(frame_version == BINARY_VERSION) return decodeBinary(ByteBuffer.wrap(payload, offset + 1, length - 1));
+        if(length < 2) throw new IOException("Missing compression flag.");
+        if(payload[offset + 1] == RAW_BODY) return decodeBinary(ByteBuffer.wrap(payload, offset + 2, length - 2));
+        return decodeBinary(ByteBuffer.wrap(decompress(ByteBuffer.wrap(payload, offset + 2, length - 2))));
+    }
+
+    //Flag byte, then either the raw body or its uncompressed length followed by the deflate stream.
+    private static byte[] compress(byte[] body)
+    {
+        if(body.length >= compression_threshold)
+        {
+            Deflater deflater = deflaters.poll();
+            if(deflater == null) deflater = new Deflater(Deflater.BEST_SPEED);
+            try
+            {
+                deflater.setDictionary(TILE_DICTIONARY);
+                deflater.setInput(body);
+                deflater.finish();
+                //Only worth sending if it actually saves space.
+                byte[] deflated = new byte[body.length];
+                int deflated_length = 0;
+                while(!deflater.finished() && deflated_length < deflated.length)
+                {
+                    deflated_length += deflater.deflate(deflated, deflated_length, deflated.length - deflated_length);
+                }
+                if(deflater.finished())
+                {
+                    ByteBuffer compressed = ByteBuffer.allocate(1 + varintSize(body.length) + deflated_length);
+                    compressed.put((byte)DEFLATED_BODY);
+                    putVarint(compressed, body.length);
+                    compressed.put(deflated, 0, deflated_length);
+                    return compressed.array();
+                }
+            }
+            finally
+            {
+                deflater.reset();
+                deflaters.offer(deflater);
+            }
+        }
+        byte[] raw = new byte[body.length + 1];
+        raw[0] = RAW_BODY;
+        System.arraycopy(body, 0, raw, 1, body.length);
+        return raw;
+    }
+    private static byte[] decompress(ByteBuffer compressed) throws IOException
+    {
+        int body_length;
+        try
+        {
+            body_length = getVarint(compressed);
+        }
+        catch(RuntimeException e)
+        {
+            throw new IOException("Malformed compressed body.", e);
+        }
+        //The declared length is bounded like a frame, so a hostile peer cannot make us allocate without limit.
+        checkLength(body_length);
+        Inflater inflater = inflaters.poll();
+        if(inflater == null) inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+            byte[] body = new byte[body_length];
+            int inflated = 0;
+            while(inflated < body_length)
+            {
+                int count = inflater.inflate(body, inflated, body_length - inflated);
+                if(count == 0)
+                {
+                    if(inflater.needsDictionary()) inflater.setDictionary(TILE_DICTIONARY);
+                    else if(inflater.finished() || inflater.needsInput()) break;
+                }
+                inflated += count;
+            }
+            if(inflated != body_length || !inflater.finished()) throw new IOException("Compressed body did not match its declared length.");
+            return body;
+        }
+        catch(DataFormatException e)
+        {
+            throw new IOException("Malformed compressed body.", e);
+        }
+        finally
+        {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+    //Rows of the default tiles as Look and the debug renders print them, with the players on them, plus the
+    //fixed game replies. zlib matches the end of the dictionary most cheaply, so the commonest rows go last.
+    private static byte[] buildTileDictionary()
+    {
+        StringBuilder dictionary = new StringBuilder();
+        dictionary.append("Welcome to the Dungeons of Doom! Enjoy your game!\nReturning to server...\nLOSS\nFail\nSuccess Gold Owned: \n");
+        for(String row : new String[]{"..G..", "..E..", "..P..", "..B..", "#.G.#", "#...#", "##.##", ".#.#."})
+        {
+            dictionary.append(row).append('\n');
+        }
+        dictionary.append("#".repeat(64)).append('\n');
+        dictionary.append(".".repeat(64)).append('\n');
+        dictionary.append("#####\n#...#\n#.P.#\n#...#\n#####\n");
+        dictionary.append(".....\n.....\n..P..\n.....\n.....\n");
+        return dictionary.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] encodeBinary(Packet packet)
+    {
+        byte[] sender_name = toBytes(packet.sender_name);
+        byte[] data = toBytes(packet.data);
+        int size = 2 + stringSize(sender_name) + stringSize(data);
+        ByteBuffer body = ByteBuffer.allocate(size);
+        body.put((byte)packet.packet_type.ordinal());
+        body.put((byte)packet.sender_type.ordinal());
+        putString(body, sender_name);
+        putString(body, data);
+        return body.array();
+    }
+    private static Packet decodeBinary(ByteBuffer body) throws IOException
+    {
+        try
+        {
+            Packet.PacketType packet_type = PACKET_TYPES[body.get()];
+            SenderType sender_type = SENDER_TYPES[body.get()];
+            String sender_name = getString(body);
+            String data = getString(body);
+            return new Packet(sender_name, data, packet_type, sender_type);
+        }
+        catch(RuntimeException e)
+        {
+            throw new IOException("Malformed binary packet.", e);
+        }
+    }
+    private static byte[] serialize(Packet packet) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        try(ObjectOutputStream out = new ObjectOutputStream(body))
+        {
+            out.writeObject(packet);
+        }
+        return body.toByteArray();
+    }
+    private static Packet deserialize(byte[] payload, int offset, int length) throws IOException
+    {
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload, offset, length)))
+        {
+            return (Packet)in.readObject();
+        }
+        catch(ClassNotFoundException e)
+        {
+            throw new IOException("Frame did not contain a packet.", e);
+        }
+    }
+
+    //Strings are a varint of (byte length + 1) followed by UTF-8, so that 0 can stand for null.
+    private static byte[] toBytes(String string)
+    {
+        return (string == null) ? null : string.getBytes(StandardCharsets.UTF_8);
+    }
+    private static int stringSize(byte[] bytes)
+    {
+        if(bytes == null) return 1;
+        return varintSize(bytes.length + 1) + bytes.length;
+    }
+    private static void putString(ByteBuffer buffer, byte[] bytes)
+    {
+        if(bytes == null)
+        {
+            putVarint(buffer, 0);
+            return;
+        }
+        putVarint(buffer, bytes.length + 1);
+        buffer.put(bytes);
+    }
+    private static String getString(ByteBuffer buffer)
+    {
+        int length = getVarint(buffer) - 1;
+        if(length < 0) return null;
+        String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private static int varintSize(int value)
+    {
+        int size = 1;
+        while((value >>>= 7) != 0) ++size;
+        return size;
+    }
+    private static void putVarint(ByteBuffer buffer, int value)
+    {
+        while((value & ~0x7F) != 0)
+        {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+    private static int getVarint(ByteBuffer buffer)
+    {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) return value;
+        }
+        throw new IllegalStateException("Malformed varint.");
+    }
+    private static int readVarint(InputStream in) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.read();
+            if(b == -1) throw new EOFException();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed frame length.");
+    }
+    private static int checkLength(int length) throws IOException
+    {
+        if(length < 1 || length > MAX_FRAME_SIZE) throw new IOException("Invalid frame length " + length);
+        return length;
+    }
+}
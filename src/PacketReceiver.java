@@ -1,11 +1,12 @@
-import java.io.ObjectInputStream;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.net.Socket;
 
 
 //What if we have a private thread.
 public class PacketReceiver extends Thread
 {
-    private ObjectInputStream reader;
+    private DataInputStream reader;
     private Client client;
     private PacketHandler packet_handler;
     private ThreadRunner<PacketReceiver> thread_runner;
@@ -13,7 +14,7 @@ public class PacketReceiver extends Thread
 
     public PacketReceiver(Client client, Socket connected_socket, PacketHandler packet_handler, ThreadRunner<PacketReceiver> thread_runner)
     {
-        try { this.reader = new ObjectInputStream(connected_socket.getInputStream()); }
+        try { this.reader = new DataInputStream(new BufferedInputStream(connected_socket.getInputStream())); }
         catch(Exception exception)
         {
             exception.printStackTrace();
@@ -27,6 +28,10 @@ public class PacketReceiver extends Thread
     {
         this.thread_runner.run(this);
     }
+    public Packet receive() throws Exception
+    {
+        return this.client.getPacketEncoder().read(this.reader);
+    }
     public synchronized void handlePacket(Packet data) throws Exception
     {
         this.packet_handler.handlePacket(data, this);
@@ -37,7 +42,7 @@ public class PacketReceiver extends Thread
         running = false;
     }
 
-    public ObjectInputStream getReader()
+    public DataInputStream getReader()
     {
         return this.reader;
     }
@@ -1,12 +1,13 @@
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.InputStreamReader;
-import java.io.ObjectOutputStream;
 import java.net.Socket;
 
 
 public class PacketSender extends Thread{
     private ThreadRunner<PacketSender> thread_runner;
-    private ObjectOutputStream writer;
+    private DataOutputStream writer;
     private BufferedReader user_input_reader;
     //Move this to client.
     private String user_name = "Guest";
@@ -17,7 +18,7 @@ public class PacketSender extends Thread{
     {
         try {
             this.client = client;
-            this.writer = new ObjectOutputStream(connected_socket.getOutputStream());
+            this.writer = new DataOutputStream(new BufferedOutputStream(connected_socket.getOutputStream()));
             this.user_input_reader = new BufferedReader(new InputStreamReader(System.in));
             this.thread_runner = thread_runner;
         }
@@ -33,8 +34,7 @@ public class PacketSender extends Thread{
     }
     public synchronized void send(Packet packet) throws Exception
     {
-        this.writer.writeObject(packet);
-        this.writer.flush();
+        this.client.getPacketEncoder().write(this.writer, packet);
     }
     public String getInput() throws Exception
     {
@@ -69,7 +69,7 @@ public class PacketSender extends Thread{
     {
         running = false;
     }
-    public ObjectOutputStream getWriter()
+    public DataOutputStream getWriter()
     {
         return this.writer;
     }
@@ -0,0 +1,16 @@
+import java.net.InetSocketAddress;
+
+public interface PacketTransport
+{
+    //Starts draining the handler's outbound queue. Closes the connection once the queue is closed and drained.
+    void startWriter(OutboundQueue outbound_queue);
+    //Called after a packet has been queued.
+    void wakeWriter();
+    Packet receive() throws Exception;
+    void close();
+    //Called from any thread once the handler has given up on a slow client. Drops whatever is unwritten and closes the connection,
+    //leaving the connection's own thread to remove the client from the server. Never blocks and never calls back into the server.
+    void abandon();
+    boolean isOpen();
+    InetSocketAddress getRemoteAddress();
+}
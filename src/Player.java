@@ -17,13 +17,18 @@ public abstract class Player {
     protected final boolean is_human;
     //Description : All players are either human or computer controlled. This boolean helps the to differentiate that, and mitigates expensive casting.
     /**
-     * Description : The position of the player entity.
+     * Description : The position of the player entity, packed by Coord.
      */
-    protected Vector2 position;
+    protected long position;
     /**
      * Description : The dimensions of the players field of vision.
      */
     protected Vector2 field_of_vision_dim;
+    /**
+     * Description : The occupancy grid of the game this player belongs to, and the player's index within it. Null until the game tracks the player.
+     */
+    private OccupancyGrid occupancy = null;
+    private int occupancy_index = OccupancyGrid.NONE;
 
     /**
      * Constructor initialising the attributes.
@@ -35,7 +40,7 @@ public abstract class Player {
      */
     Player(char token, Vector2 init_pos, boolean is_human, Vector2 field_of_vision_dim) {
         this.token = token;
-        this.position = init_pos;
+        this.position = Coord.FromVector2(init_pos);
         this.is_human = is_human;
         this.field_of_vision_dim = field_of_vision_dim;
 
@@ -56,7 +61,17 @@ public abstract class Player {
      * @param offset The amount by which the player should be moved.
      */
     public void Move(Vector2 offset) {
-        position.Add(offset);
+        Move(offset.x, offset.y);
+    }
+
+    /**
+     * Description : Moves the player without allocating.
+     *
+     * @param dx The offset along x.
+     * @param dy The offset along y.
+     */
+    public void Move(int dx, int dy) {
+        SetPosition(Coord.X(position) + dx, Coord.Y(position) + dy);
     }
 
     /**
@@ -65,14 +80,58 @@ public abstract class Player {
      * @param pos The new position.
      */
     public void SetPosition(Vector2 pos) {
-        position = pos;
+        SetPosition(pos.x, pos.y);
     }
 
     /**
-     * @return A copy of the player's position.
+     * Description : Sets the position of the player without allocating.
+     *
+     * @param x The new x coordinate.
+     * @param y The new y coordinate.
+     */
+    public void SetPosition(int x, int y) {
+        position = Coord.Pack(x, y);
+        if (occupancy != null) occupancy.Move(occupancy_index, x, y);
+    }
+
+    /**
+     * @return A copy of the player's position. Hot paths should prefer GetX, GetY or GetCoord, which do not allocate.
      */
     public Vector2 GetPosition() {
-        return new Vector2(position);
+        return Coord.ToVector2(position);
+    }
+
+    /**
+     * @return The player's position, packed by Coord.
+     */
+    public long GetCoord() {
+        return position;
+    }
+
+    /**
+     * @return The x coordinate of the player.
+     */
+    public int GetX() {
+        return Coord.X(position);
+    }
+
+    /**
+     * @return The y coordinate of the player.
+     */
+    public int GetY() {
+        return Coord.Y(position);
+    }
+
+    /**
+     * Description : Places the player on the occupancy grid of its game. From then on, every change of position is reflected in the grid.
+     *
+     * @param grid         The occupancy grid of the game.
+     * @param player_index The index of the player in the game.
+     */
+    public void Track(OccupancyGrid grid, int player_index) {
+        occupancy = grid;
+        occupancy_index = player_index;
+        grid.Add(player_index, is_human, Coord.X(position), Coord.Y(position));
     }
 
     /**
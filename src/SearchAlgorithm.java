@@ -21,6 +21,11 @@ public abstract class SearchAlgorithm {
      * Description : The target which the player wants to seek.
      */
     protected char target_token;
+    /**
+     * Description : The state of the random choices of the current decision. The game seeds it before every decision, so that a
+     * decision depends only on the game, the round and the enemy, and never on which thread makes it.
+     */
+    private long random_state = 0;
 
     /**
      * Description : A constructor initialising the object attributes.
@@ -39,6 +44,50 @@ public abstract class SearchAlgorithm {
      */
     public abstract ArrayList<String> ExecuteSearch(Vector2 start_position);
 
+    /**
+     * Description : The same as ExecuteSearch(Vector2), for callers holding the position as two ints. Algorithms which can search
+     * without a Vector2 override this, so that no vector is allocated per decision.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The command, for instance {"MOVE","N"}
+     */
+    public ArrayList<String> ExecuteSearch(int start_x, int start_y) {
+        return ExecuteSearch(new Vector2(start_x, start_y));
+    }
+
+    /**
+     * Description : Returns the verdict of the algorithm as a packed BotAction, which the game applies without parsing a command.
+     * By default the string command is read back into an action. Algorithms which decide on directions override this, and build their string command from it instead.
+     *
+     * @param start_x The global x position of the entity.
+     * @param start_y The global y position of the entity.
+     * @return The packed action, for instance BotAction.Move(0) for "MOVE N".
+     */
+    public int Decide(int start_x, int start_y) {
+        return BotAction.FromCommand(ExecuteSearch(start_x, start_y));
+    }
+
+    /**
+     * Description : Seeds the random choices of the next decision.
+     *
+     * @param seed The seed of the decision.
+     */
+    public void SeedDecision(long seed) {
+        random_state = seed;
+    }
+
+    /**
+     * Description : Draws the next random choice of the current decision.
+     *
+     * @param bound The exclusive upper bound.
+     * @return A number from 0 to bound - 1.
+     */
+    protected int NextRandom(int bound) {
+        random_state += 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(Utility.Mix64(random_state), bound);
+    }
+
     /**
      * Description : Updates the vision portion of the algorithm / player.
      *
@@ -48,4 +97,11 @@ public abstract class SearchAlgorithm {
         map_subset = subset;
         requires_vision_update = false;
     }
+
+    /**
+     * @return The vision portion of the algorithm / player.
+     */
+    public MapSubset GetMapSubset() {
+        return map_subset;
+    }
 };
\ No newline at end of file
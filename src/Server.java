@@ -3,31 +3,57 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class Server{
 
-    private ArrayList<InetSocketAddress> banned_clients;
-    private ArrayList<SocketHandler> client_endpoints;
+    private BanStore ban_store;
+    private DoDBackendPool dod_backends;
+    private ClientRegistry clients;
     private ArrayList<String> sensored_words;
 
     private ServerSocket input_socket;
     private Socket tmp_output_socket;
-    private Integer max_client_ID;
     private boolean is_running;
-    private ReentrantLock mutex;
+    private ServerMode mode;
+    private ServerEventLoop[] event_loops;
+    private int next_event_loop;
+    private ExecutorService connection_executor;
+    private SlowConsumerPolicy slow_consumer_policy;
+    private int outbound_queue_capacity;
     public static final int strike_threshold = 3;
 
     public Server(ArrayList<String> sensored_words)
+    {
+        this(sensored_words, ServerMode.THREAD_PER_CONNECTION);
+    }
+    public Server(ArrayList<String> sensored_words, ServerMode mode)
     {
         this.sensored_words = sensored_words;
-        this.mutex = new ReentrantLock();
-        this.banned_clients = new ArrayList<>();
-        this.client_endpoints = new ArrayList<>();
-        this.max_client_ID = 0;
+        this.mode = mode;
+        this.slow_consumer_policy = SlowConsumerPolicy.DROP_CHAT;
+        this.outbound_queue_capacity = 1024;
+        this.ban_store = new BanStore(new File("banned_clients.log"));
+        this.dod_backends = new DoDBackendPool();
+        this.clients = new ClientRegistry();
         this.is_running = false;
     }
+    public void setSlowConsumerPolicy(SlowConsumerPolicy policy, int outbound_queue_capacity)
+    {
+        this.slow_consumer_policy = policy;
+        this.outbound_queue_capacity = outbound_queue_capacity;
+    }
+    public SlowConsumerPolicy getSlowConsumerPolicy()
+    {
+        return this.slow_consumer_policy;
+    }
+    public int getOutboundQueueCapacity()
+    {
+        return this.outbound_queue_capacity;
+    }
     private void introduceServer() throws Exception
     {
         ArrayList<String> dialogue = new ArrayList<String>(){{
@@ -55,7 +81,7 @@ public final class Server{
                     String port_number = console_reader.readLine();
                     Utility.print("Enter desired IP address or name: ");
                     String address = console_reader.readLine();
-                    this.input_socket = new ServerSocket(Integer.parseInt(port_number), 0, InetAddress.getByName(address));
+                    this.input_socket = this.openServerSocket(Integer.parseInt(port_number), InetAddress.getByName(address));
                     this.is_running = true;
                 }
                 catch(IOException e)
@@ -82,27 +108,91 @@ public final class Server{
             {
                 e.printStackTrace();
             }
-            this.listen();
+            if(this.mode == ServerMode.VIRTUAL_THREADS)
+            {
+                //The accept loop itself runs on a virtual thread; this thread just waits for it.
+                try { this.getConnectionExecutor().submit(this::listen).get(); }
+                catch(Exception e) { e.printStackTrace(); }
+            }
+            else this.listen();
 
             //Add the DoD client here.
 
         }
 
+    private ServerSocket openServerSocket(int port_number, InetAddress address) throws IOException
+    {
+        if(this.mode != ServerMode.REACTOR) return new ServerSocket(port_number, 0, address);
+        //The reactor needs SocketChannels, so accept through a blocking ServerSocketChannel.
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(address, port_number));
+        return channel.socket();
+    }
+    private ExecutorService getConnectionExecutor()
+    {
+        if(this.connection_executor != null) return this.connection_executor;
+        if(this.mode == ServerMode.VIRTUAL_THREADS)
+        {
+            //Looked up reflectively so the server still builds and runs on JDKs without virtual threads.
+            try
+            {
+                this.connection_executor = (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                return this.connection_executor;
+            }
+            catch(ReflectiveOperationException e)
+            {
+                ServerLog.warn("Virtual threads are not available on this JVM. Falling back to platform threads.");
+            }
+        }
+        this.connection_executor = Executors.newCachedThreadPool();
+        return this.connection_executor;
+    }
+    private void startEventLoops() throws IOException
+    {
+        this.event_loops = new ServerEventLoop[Runtime.getRuntime().availableProcessors()];
+        for(int i = 0; i < this.event_loops.length; ++i)
+        {
+            this.event_loops[i] = new ServerEventLoop(i);
+            this.event_loops[i].start();
+        }
+        ServerLog.info("Started " + this.event_loops.length + " event loops.");
+    }
+    private ServerEventLoop nextEventLoop()
+    {
+        //Only the accepting thread calls this, so plain round robin is enough.
+        ServerEventLoop event_loop = this.event_loops[this.next_event_loop];
+        this.next_event_loop = (this.next_event_loop + 1) % this.event_loops.length;
+        return event_loop;
+    }
+
     public void listen() {
+            if(this.mode == ServerMode.REACTOR)
+            {
+                try { this.startEventLoops(); }
+                catch(IOException e)
+                {
+                    e.printStackTrace();
+                    return;
+                }
+            }
             while(this.is_running)
             {
                 try { this.tmp_output_socket = input_socket.accept(); }
                 catch(Exception e) { e.printStackTrace(); }
-                Thread thread = new Thread()
+                if(this.mode == ServerMode.REACTOR)
+                {
+                    //Accepting is cheap here; the connection is handed to an event loop straight away.
+                    try { addClient(tmp_output_socket); }
+                    catch(Exception e) {e.printStackTrace();}
+                    continue;
+                }
+                //Capture the socket; the field is overwritten by the next accept before this task may run.
+                final Socket accepted_socket = this.tmp_output_socket;
+                this.getConnectionExecutor().execute(() ->
                 {
-                    @Override
-                    public void run()
-                    {
-                        try { addClient(tmp_output_socket); }
-                        catch(Exception e) {e.printStackTrace();}
-                    }
-                };
-                thread.start();
+                    try { addClient(accepted_socket); }
+                    catch(Exception e) {e.printStackTrace();}
+                });
                 //this.addClient(this.tmp_output_socket);
             }
             try { this.input_socket.close(); }
@@ -110,106 +200,126 @@ public final class Server{
             {
                 e.printStackTrace();
             }
+            if(this.event_loops != null)
+            {
+                for(ServerEventLoop event_loop : this.event_loops) event_loop.terminate();
+            }
+            if(this.connection_executor != null) this.connection_executor.shutdown();
         }
 
-    public synchronized void send(Packet packet, int to_client_ID)
+    //Lookups go straight to the registry's hash indexes. No lock is held across socket writes,
+    //so virtual threads are never pinned to their carrier.
+    public void send(Packet packet, int to_client_ID)
     {
-        SocketHandler client_handler = this.getClient(to_client_ID);
+        SocketHandler client_handler = this.clients.get(to_client_ID);
         if(client_handler == null) return;
         client_handler.handlePacket(packet);
     }
-    public synchronized void send(Packet packet, String client_name) {
-        SocketHandler client_handler = this.getClient(client_name);
+    public void send(Packet packet, String client_name) {
+        SocketHandler client_handler = this.clients.get(client_name);
         if (client_handler == null) return;
         client_handler.handlePacket(packet);
     }
 
 
-    public synchronized void broadcast(Packet packet, int sent_from_ID) throws Exception
+    public void broadcast(Packet packet, int sent_from_ID) throws Exception
     {
-        for (SocketHandler handler : this.client_endpoints)
+        //Encoded at most once per codec version, however many clients receive it.
+        OutboundFrame frame = new OutboundFrame(packet);
+        for (SocketHandler handler : this.clients.snapshot())
         {
             if (handler.isinDoNotDisturbMode() || handler.getClientID() == sent_from_ID) continue;
-            handler.handlePacket(packet);
+            //Only queues; a client with a full socket cannot hold up everyone else.
+            handler.deliver(frame);
         }
     }
 
 
     public void addClient(Socket output_socket) throws Exception
     {
-        Utility.print("Attempting to add user to database.");
+        ServerLog.info("Attempting to add user to database.");
         Packet handshake = this.checkUserBan(output_socket);
         if(handshake.packet_type == Packet.PacketType.CONNECT_GRANTED)
         {
-            ++max_client_ID;
-            SocketHandler client_handler = new SocketHandler(this, output_socket, max_client_ID, handshake);
-            this.client_endpoints.add(client_handler);
-            client_handler.start();
-            Utility.print("Added user to database.");
+            int client_ID = this.clients.nextClientID();
+            if(this.mode == ServerMode.REACTOR)
+            {
+                ServerEventLoop event_loop = this.nextEventLoop();
+                ChannelTransport transport = new ChannelTransport(output_socket.getChannel(), event_loop);
+                SocketHandler client_handler = new SocketHandler(this, transport, client_ID, handshake);
+                transport.bind(this, client_handler);
+                this.clients.add(client_handler);
+                event_loop.register(transport);
+            }
+            else
+            {
+                SocketHandler client_handler = new SocketHandler(this, new SocketTransport(output_socket, this.getConnectionExecutor()), client_ID, handshake);
+                this.clients.add(client_handler);
+                this.getConnectionExecutor().execute(client_handler);
+            }
+            ServerLog.info("Added user to database.");
             return;
         }
-        ObjectOutputStream out = new ObjectOutputStream(output_socket.getOutputStream());
-        out.writeObject(handshake);
-        out.flush();
+        //The socket is still blocking at this point in every mode. Denials always use the fallback codec.
+        new PacketEncoder().write(new BufferedOutputStream(output_socket.getOutputStream()), handshake);
         output_socket.close();
     }
     public void removeClient(Integer client_ID, boolean ban) throws Exception
     {
-        this.mutex.lock();
-        try {
-            //Explanation: Find the client handler with the given client ID.
-            SocketHandler client_configuration = this.getClient(client_ID);
-            //Client did not exist.
-            if(client_configuration == null) return;
-            //Explanation: Stop the inner thread loop from running.
-            if(!ban)
-            {
-                Packet broadcast_packet = new Packet("Server", client_configuration.getClientName() + " has left the server. Say goodbye!", Packet.PacketType.BROADCAST, SenderType.SERVER);
-                this.broadcast(broadcast_packet, -1);
-            }
-            Packet goodbye_packet = new Packet("Server", "Apollo thanks you for your stay. Take care.", Packet.PacketType.DISCONNECT_GRANTED, SenderType.SERVER);
-            client_configuration.handlePacket(goodbye_packet);
-            if(ban) this.banned_clients.add(client_configuration.getClientConfig());
-            client_configuration.terminate();
-            //Remove the client_configuration from our array.
-            this.client_endpoints.remove(client_configuration);
+        //Explanation: Find the client handler with the given client ID.
+        SocketHandler client_configuration = this.clients.get(client_ID);
+        //Client did not exist, or another thread removed it first. Whoever removes it does the goodbyes.
+        if(client_configuration == null || !this.clients.remove(client_configuration)) return;
+        //Bans cover the whole address. The port is ephemeral, so banning it never stopped anyone reconnecting.
+        if(ban) this.ban_store.ban(client_configuration.getClientConfig().getAddress());
+        //A user leaving mid game frees their session; a backend leaving ends every game it was hosting.
+        this.dod_backends.release(client_configuration.getClientName());
+        for(String orphaned_user : this.dod_backends.removeBackend(client_ID))
+        {
+            this.send(new Packet(orphaned_user, "The Dungeons of Doom have collapsed. Returning to server...", Packet.PacketType.DOD_GAME_OVER, SenderType.SERVER), orphaned_user);
         }
-        finally{
-            this.mutex.unlock();
+        if(!ban)
+        {
+            Packet broadcast_packet = new Packet("Server", client_configuration.getClientName() + " has left the server. Say goodbye!", Packet.PacketType.BROADCAST, SenderType.SERVER);
+            this.broadcast(broadcast_packet, -1);
         }
+        Packet goodbye_packet = new Packet("Server", "Apollo thanks you for your stay. Take care.", Packet.PacketType.DISCONNECT_GRANTED, SenderType.SERVER);
+        client_configuration.handlePacket(goodbye_packet);
+        //Explanation: Stop the inner thread loop from running.
+        client_configuration.terminate();
     }
-    private SocketHandler getClient(int client_ID)
+    private Packet checkUserBan(Socket output_socket)
     {
-        return this.client_endpoints.stream().filter(client -> client.getClientID() == client_ID).findAny().orElse(null);
+        if (this.ban_store.isBanned(output_socket.getInetAddress()))
+        {
+            return new Packet("Server","Unauthorised request. You have banned from the server because of past behaviour.", Packet.PacketType.CONNECT_DENIED, SenderType.SERVER);
+        }
+        Packet handshake = new Packet("Server","Welcome to the Apollo Server. Please enter your desired username.", Packet.PacketType.CONNECT_GRANTED, SenderType.SERVER);
+        handshake.codec_version = PacketEncoder.MAX_VERSION;
+        return handshake;
     }
-    private SocketHandler getClient(String client_name)
+    //Reserves the username for the caller in one step, so two clients validating the same name cannot both succeed.
+    public boolean claimUsername(SocketHandler caller, String username)
     {
-        return this.client_endpoints.stream().filter(client -> client.getClientName().equals(client_name)).findAny().orElse(null);
+        return this.clients.claimName(caller, username);
     }
-    private Packet checkUserBan(Socket output_socket)
+    public void registerDoDBackend(SocketHandler backend)
     {
-        InetAddress client_IP = output_socket.getInetAddress();
-        int client_port = output_socket.getPort();
-        for (InetSocketAddress banned_config : this.banned_clients)
-        {
-            if (banned_config.getAddress().toString().equals(client_IP.toString()) && banned_config.getPort() == client_port)
-            {
-                return new Packet("Server","Unauthorised request. You have banned from the server because of past behaviour.", Packet.PacketType.CONNECT_DENIED, SenderType.SERVER);
-            }
-        }
-        return new Packet("Server","Welcome to the Apollo Server. Please enter your desired username.", Packet.PacketType.CONNECT_GRANTED, SenderType.SERVER);
+        this.dod_backends.addBackend(backend.getClientID(), backend.getClientName());
+        ServerLog.info("[" + backend.getClientName() + "] joined the DoD pool. " + this.dod_backends.size() + " backends available.");
     }
-    public boolean usernameExists(String username, int caller_ID)
+    //Sticky: the user stays on the backend they are given until their game ends. Returns -1 if no backend is connected.
+    public int assignDoDBackend(String client_name)
     {
-        for(SocketHandler handler : this.client_endpoints)
-        {
-            if(handler.getClientID() != caller_ID && handler.getClientName().equals(username)) return true;
-        }
-        return false;
+        return this.dod_backends.assign(client_name);
+    }
+    public int getDoDBackend(String client_name)
+    {
+        return this.dod_backends.getBackend(client_name);
     }
-    public int getDoDClientID()
+    public void releaseDoDSession(String client_name)
     {
-        return 3;
+        this.dod_backends.release(client_name);
     }
     public ArrayList<String> getBannedWords()
     {
@@ -217,7 +327,10 @@ public final class Server{
     }
     public static void main(String[] args) {
         new ArrayList<String>(){{add("");}};
-        Server server = new Server(new ArrayList<>(){{add("DARN"); add("JAVA"); add("PYTHON"); add("FRICK"); add("YEET"); add("CRAP");}});
+        ServerMode mode = (args.length > 0) ? ServerMode.valueOf(args[0].toUpperCase()) : ServerMode.THREAD_PER_CONNECTION;
+        Server server = new Server(new ArrayList<>(){{add("DARN"); add("JAVA"); add("PYTHON"); add("FRICK"); add("YEET"); add("CRAP");}}, mode);
+        if(args.length > 1) server.setSlowConsumerPolicy(SlowConsumerPolicy.valueOf(args[1].toUpperCase()), (args.length > 2) ? Integer.parseInt(args[2]) : 1024);
+        if(args.length > 3) ServerLog.setTraceSampling(Integer.parseInt(args[3]));
         server.launch();
     }
 
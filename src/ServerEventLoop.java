@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//One selector thread. Every connection is registered to exactly one loop for its whole life,
+//so its reads, writes and handlePacket routing never race with each other.
+public final class ServerEventLoop extends Thread
+{
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<ChannelTransport> pending_registrations;
+    private final ConcurrentLinkedQueue<ChannelTransport> pending_flushes;
+    private final ConcurrentLinkedQueue<ChannelTransport> pending_abandons;
+    private volatile boolean running;
+
+    public ServerEventLoop(int loop_ID) throws IOException
+    {
+        super("ServerEventLoop-" + loop_ID);
+        this.selector = Selector.open();
+        this.pending_registrations = new ConcurrentLinkedQueue<>();
+        this.pending_flushes = new ConcurrentLinkedQueue<>();
+        this.pending_abandons = new ConcurrentLinkedQueue<>();
+        this.running = true;
+        this.setDaemon(true);
+    }
+    public void register(ChannelTransport transport)
+    {
+        this.pending_registrations.add(transport);
+        this.selector.wakeup();
+    }
+    public void requestFlush(ChannelTransport transport)
+    {
+        if(Thread.currentThread() == this)
+        {
+            transport.flush();
+            return;
+        }
+        this.pending_flushes.add(transport);
+        this.selector.wakeup();
+    }
+    //Always deferred to the next turn of the loop, even from the loop's own thread,
+    //so the caller (often a broadcast in the middle of another handler's packet) never removes a client itself.
+    public void requestAbandon(ChannelTransport transport)
+    {
+        this.pending_abandons.add(transport);
+        this.selector.wakeup();
+    }
+    public void terminate()
+    {
+        this.running = false;
+        this.selector.wakeup();
+    }
+    @Override
+    public void run()
+    {
+        while(this.running)
+        {
+            try
+            {
+                this.selector.select();
+                ChannelTransport transport;
+                while((transport = this.pending_registrations.poll()) != null)
+                {
+                    if(!transport.isOpen()) continue;
+                    transport.onRegistered(transport.getChannel().register(this.selector, SelectionKey.OP_READ, transport));
+                }
+                while((transport = this.pending_flushes.poll()) != null)
+                {
+                    if(transport.isOpen()) transport.flush();
+                }
+                while((transport = this.pending_abandons.poll()) != null)
+                {
+                    transport.onAbandoned();
+                }
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while(keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    transport = (ChannelTransport)key.attachment();
+                    if(key.isValid() && key.isReadable()) transport.onReadable();
+                    if(key.isValid() && key.isWritable()) transport.flush();
+                }
+            }
+            catch(Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+        try { this.selector.close(); }
+        catch(IOException e) { e.printStackTrace(); }
+    }
+}
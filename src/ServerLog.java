@@ -0,0 +1,184 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+//Asynchronous server log.
+//Callers copy their arguments into a preallocated slot of a bounded multi producer ring and return; nothing is formatted
+//and no lock is taken on the caller's thread. A single daemon thread drains the ring in batches, formats each record and
+//writes the batch through one buffered writer, flushing only when the ring runs dry.
+//When the ring is full, TRACE and INFO records are dropped and counted; WARN records wait for space so they are never lost.
+public final class ServerLog
+{
+    public enum Level { TRACE, INFO, WARN }
+
+    private static final class Record
+    {
+        volatile long sequence;
+        Level level;
+        long time;
+        String text_a;
+        Object arg_a;
+        String text_b;
+        Object arg_b;
+    }
+
+    private static final int capacity = 1 << 14;
+    private static final int mask = capacity - 1;
+    private static final int batch_size = 256;
+
+    private static final Record[] ring = new Record[capacity];
+    private static final AtomicLong tail = new AtomicLong();
+    private static long head = 0;
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile Level level = Level.TRACE;
+    private static volatile int trace_sample_rate = 1;
+    private static volatile Writer writer = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+
+    static
+    {
+        for(int i = 0; i < capacity; ++i)
+        {
+            ring[i] = new Record();
+            ring[i].sequence = i;
+        }
+        Thread drainer = new Thread(ServerLog::drain, "server-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    private ServerLog() {}
+
+    public static void setLevel(Level minimum_level)
+    {
+        level = minimum_level;
+    }
+    //Keep one in every sample_rate TRACE records. 1 keeps them all.
+    public static void setTraceSampling(int sample_rate)
+    {
+        trace_sample_rate = Math.max(1, sample_rate);
+    }
+    public static void setWriter(Writer output)
+    {
+        writer = output;
+    }
+    public static long getDroppedCount()
+    {
+        return dropped.sum();
+    }
+
+    public static void trace(String text_a, Object arg_a, String text_b, Object arg_b)
+    {
+        if(level != Level.TRACE) return;
+        int sample_rate = trace_sample_rate;
+        if(sample_rate > 1 && ThreadLocalRandom.current().nextInt(sample_rate) != 0) return;
+        publish(Level.TRACE, text_a, arg_a, text_b, arg_b);
+    }
+    public static void info(String text)
+    {
+        if(level == Level.WARN) return;
+        publish(Level.INFO, text, null, null, null);
+    }
+    public static void warn(String text)
+    {
+        publish(Level.WARN, text, null, null, null);
+    }
+
+    private static void publish(Level record_level, String text_a, Object arg_a, String text_b, Object arg_b)
+    {
+        long position = tail.get();
+        Record record;
+        while(true)
+        {
+            record = ring[(int)position & mask];
+            long difference = record.sequence - position;
+            if(difference == 0)
+            {
+                if(tail.compareAndSet(position, position + 1)) break;
+                position = tail.get();
+            }
+            else if(difference < 0)
+            {
+                //Full. Only warnings are worth waiting for.
+                if(record_level != Level.WARN)
+                {
+                    dropped.increment();
+                    return;
+                }
+                Thread.onSpinWait();
+                position = tail.get();
+            }
+            else position = tail.get();
+        }
+        record.level = record_level;
+        record.time = System.currentTimeMillis();
+        record.text_a = text_a;
+        record.arg_a = arg_a;
+        record.text_b = text_b;
+        record.arg_b = arg_b;
+        //Publishes the fields above to the drain thread.
+        record.sequence = position + 1;
+    }
+
+    private static void drain()
+    {
+        StringBuilder line = new StringBuilder(256);
+        long cached_second = -1;
+        String cached_date = "";
+        long reported_drops = 0;
+        while(true)
+        {
+            int drained = 0;
+            Writer output = writer;
+            while(drained < batch_size)
+            {
+                Record record = ring[(int)head & mask];
+                if(record.sequence != head + 1) break;
+                //The date is rendered once per second rather than once per record.
+                long second = record.time / 1000;
+                if(second != cached_second)
+                {
+                    cached_second = second;
+                    cached_date = new Date(second * 1000).toString();
+                }
+                line.setLength(0);
+                line.append('[').append(cached_date).append("]: ");
+                if(record.level == Level.WARN) line.append("WARNING ");
+                line.append(record.text_a);
+                if(record.arg_a != null) line.append(record.arg_a);
+                if(record.text_b != null) line.append(record.text_b);
+                if(record.arg_b != null) line.append(record.arg_b);
+                line.append(System.lineSeparator());
+                record.text_a = null;
+                record.arg_a = null;
+                record.text_b = null;
+                record.arg_b = null;
+                record.sequence = head + capacity;
+                ++head;
+                ++drained;
+                write(output, line);
+            }
+            if(drained > 0) continue;
+            long total_drops = dropped.sum();
+            if(total_drops != reported_drops)
+            {
+                write(output, "[" + new Date() + "]: WARNING Log ring full, dropped " + (total_drops - reported_drops) + " records." + System.lineSeparator());
+                reported_drops = total_drops;
+            }
+            try { output.flush(); }
+            catch(IOException e) { }
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+    private static void write(Writer output, CharSequence text)
+    {
+        try { output.append(text); }
+        //Nowhere left to report it. Keep draining so producers never stall behind a broken writer.
+        catch(IOException e) { }
+    }
+}
@@ -0,0 +1,9 @@
+public enum ServerMode
+{
+    //One blocking SocketHandler thread per connection.
+    THREAD_PER_CONNECTION,
+    //Connections are multiplexed over a fixed set of selector event loops.
+    REACTOR,
+    //Same blocking SocketHandler code, but every connection runs on a virtual thread.
+    VIRTUAL_THREADS
+}
@@ -0,0 +1,5 @@
+public interface ServerPacketHandler
+{
+    //Returns the packet to route back to this handler's client, or null if nothing should be sent.
+    Packet handlePacket(SocketHandler handler, Packet packet) throws Exception;
+}
@@ -0,0 +1,11 @@
+//What a SocketHandler does when its outbound queue is full because the client is not reading fast enough.
+public enum SlowConsumerPolicy
+{
+    //Discard the oldest queued packet to make room.
+    DROP_OLDEST,
+    //Discard chat (oldest first, or the new packet if it is chat); control packets are queued while there is chat to shed.
+    //Once control packets alone fill the queue, the client is disconnected, so the queue stays bounded.
+    DROP_CHAT,
+    //Give up on the client.
+    DISCONNECT
+}
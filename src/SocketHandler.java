@@ -1,19 +1,16 @@
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.Date;
 import java.util.concurrent.locks.ReentrantLock;
 
-public final class SocketHandler extends Thread
+public final class SocketHandler implements Runnable
 {
-    private Socket socket;
-    private ObjectInputStream input_stream;
-    private ObjectOutputStream output_stream;
+    private PacketTransport transport;
+    private OutboundQueue outbound_queue;
     private Server server;
     private String client_name;
     private int client_ID;
-    private boolean running;
+    private volatile boolean running;
+    //Set when the outbound queue overflowed. The connection's own thread then removes the client.
+    private volatile boolean slow_consumer;
     private ReentrantLock mutex;
     private int strikes;
     private boolean do_not_disturb_mode;
@@ -27,17 +24,18 @@ public final class SocketHandler extends Thread
         String sender_name = "Server";
         return new Packet(sender_name, data, packet_type, SenderType.SERVER);
     }
-    public SocketHandler(Server server, Socket entry_socket, int client_ID, Packet handshake) throws Exception
+    public SocketHandler(Server server, PacketTransport transport, int client_ID, Packet handshake) throws Exception
     {
         this.mutex = new ReentrantLock();
         this.server = server;
-        this.socket = entry_socket;
-        this.output_stream = new ObjectOutputStream(entry_socket.getOutputStream());
-        this.input_stream = new ObjectInputStream(entry_socket.getInputStream());
+        this.transport = transport;
+        this.outbound_queue = new OutboundQueue(server.getOutboundQueueCapacity(), server.getSlowConsumerPolicy());
 
         this.client_ID = client_ID;
         this.client_name = "";
         this.running = true;
+        this.slow_consumer = false;
+        this.transport.startWriter(this.outbound_queue);
         this.handlePacket(handshake);
         this.strikes = 0;
     }
@@ -48,20 +46,70 @@ public final class SocketHandler extends Thread
         try {
             while (this.running)
             {
-                packet = (Packet)this.input_stream.readObject();
+                packet = this.transport.receive();
                 if(packet == null) continue;
 
                 //Route string to packet handler.
                 this.handlePacket(packet);
-                this.output_stream.reset();
                 packet = null;
             }
         }
         catch(Exception e)
         {
-            e.printStackTrace();
+            //A read failing after terminate() is just the writer closing the socket.
+            if(this.running)
+            {
+                e.printStackTrace();
+                try { this.server.removeClient(this.client_ID, false); }
+                catch(Exception exception) { exception.printStackTrace(); }
+                return;
+            }
+        }
+        //A slow consumer was only marked dead by whichever thread overflowed its queue. Removing it happens here, on its own thread.
+        if(this.slow_consumer)
+        {
+            try { this.server.removeClient(this.client_ID, false); }
+            catch(Exception exception) { exception.printStackTrace(); }
+        }
+    }
+
+    //Queues a packet for this client without touching the socket, so callers never wait on a slow reader.
+    public void deliver(Packet packet)
+    {
+        this.deliver(new OutboundFrame(packet));
+    }
+    public void deliver(OutboundFrame frame)
+    {
+        if(this.outbound_queue.offer(frame))
+        {
+            this.transport.wakeWriter();
+            return;
         }
+        this.disconnectSlowConsumer();
     }
+    //Runs on whichever thread was delivering, often a broadcast holding another handler's mutex.
+    //So it only marks this handler dead and closes its queue; removeClient, with its goodbye and "has left" broadcast,
+    //runs later on this connection's own reader thread or event loop.
+    private void disconnectSlowConsumer()
+    {
+        if(this.slow_consumer || !this.running) return;
+        this.slow_consumer = true;
+        ServerLog.warn("Disconnecting [" + this.client_name + "]: outbound queue overflowed.");
+        this.terminate();
+        this.outbound_queue.clear();
+        this.transport.abandon();
+    }
+
+    //One shared table for every connection. Each route returns the packet to send back to its own client, or null.
+    private static final PacketDispatchTable<ServerPacketHandler> routes = new PacketDispatchTable<ServerPacketHandler>()
+            //Broadcast packet shouldn't be broadcast again.
+            //Let the connect request route to the client.
+            .register((handler, packet_data) -> packet_data, Packet.PacketType.DOD_CONNECT_REQUEST, Packet.PacketType.DOD_USER_MESSAGE, Packet.PacketType.CONNECT_GRANTED, Packet.PacketType.BROADCAST, Packet.PacketType.DISCONNECT_GRANTED)
+            .register(SocketHandler::onValidationRequest, Packet.PacketType.VALIDATION_REQUEST)
+            .register(SocketHandler::onDoDConnectGranted, Packet.PacketType.DOD_CONNECT_GRANTED)
+            .register(SocketHandler::onDoDGameOver, Packet.PacketType.DOD_GAME_OVER)
+            .register(SocketHandler::onDoDGameMessage, Packet.PacketType.DOD_GAME_MESSAGE)
+            .register(SocketHandler::onMessage, Packet.PacketType.MESSAGE);
 
     public void handlePacket(final Packet packet_data)
     {
@@ -69,174 +117,149 @@ public final class SocketHandler extends Thread
         try
         {
             Packet.PacketType packet_type = packet_data.packet_type;
-            Utility.print("[" + (new Date()).toString() +"]: RECEIVED " + packet_type + " FROM " + packet_data.sender_name);
+            ServerLog.trace("RECEIVED ", packet_type, " FROM ", packet_data.sender_name);
 
-            Packet response_packet;
+            ServerPacketHandler route = routes.get(packet_type);
+            if(route == null) throw new IllegalStateException("Unexpected value: " + packet_type.toString());
             this.mutex.lock();
-            switch(packet_type.toString())
+            try
             {
-                case("DOD_CONNECT_REQUEST"):
-                case("DOD_USER_MESSAGE"):
-                case("CONNECT_GRANTED"):
-                case("BROADCAST"):
-                {
-                    //Broadcast packet shouldn't be broadcast again.
-                    //Let the connect request route to the client.
-                    response_packet = packet_data;
-                    break;
-                }
-                case("VALIDATION_REQUEST"):
-                {
-                    //Username already exists. Route the packet back.
-                    if(this.server.usernameExists(packet_data.data, this.client_ID)) response_packet = this.encodePacket("Account with username [" + packet_data.data + "] already exists. Please choose another name.", Packet.PacketType.VALIDATION_DENIED);
-                    else
-                    {
-                        //Broadcast the packet.
-                        response_packet = this.encodePacket("Say hi to [" + packet_data.data + "], everyone!", Packet.PacketType.BROADCAST);
-                        this.client_name = packet_data.data;
-                        this.server.broadcast(response_packet, this.client_ID);
-
-                        //Let the client know that validation has also been granted.
-                        response_packet.packet_type = Packet.PacketType.VALIDATION_GRANTED;
-                        if(packet_data.sender_type.toString().equals("DODCLIENT"))
-                        {
-                            this.do_not_disturb_mode = true;
-                        }
-                    }
-                    break;
-                }
-                case("DOD_CONNECT_GRANTED"):
-                {
-                    //DoD Client has granted a join request.
-
-                    //Check if we are on the client socket handler by comparing the names.
-                    if(!this.client_name.equals(packet_data.sender_name))
-                    {
-                        //Broadcast the grant to everyone.
-                        this.server.broadcast(new Packet("Server", "[" + packet_data.sender_name + "] has joined a DoD match. Wish the brave warrior luck!", Packet.PacketType.BROADCAST, SenderType.SERVER),this.client_ID);
-
-                        //Then we need to forward this message to the client.
-                        this.server.send(packet_data, packet_data.sender_name);
-                        return;
-                    }
-                    //The client endpoint has now received the packet
-                    //Send to client.
-                    else response_packet = packet_data;
-                    break;
-                }
-                case("DOD_GAME_OVER"):
-                {
-                    if(!this.client_name.equals(packet_data.sender_name))
-                    {
-                        //If we are dod client socket, then we need to send the packet to the client socker handler.
-                        this.server.send(packet_data, packet_data.sender_name);
-                        this.server.broadcast(new Packet(this.client_name, "[" + packet_data.sender_name + "] is back from the Dungeons of Doom! Bring out the champagne!", Packet.PacketType.BROADCAST, SenderType.SERVER), -1);
-                        return;
-                    }
-                    response_packet = packet_data;
-                    //Now we are on the client. Disable the in game.
-                    if(packet_data.packet_type == Packet.PacketType.DOD_GAME_OVER)
-                    {
-                        this.do_not_disturb_mode = false;
-                    }
-                    break;
-                }
-                case("DOD_GAME_MESSAGE"):
-                {
+                Packet response_packet = route.handlePacket(this, packet_data);
+                if(response_packet == null) return;
+                this.deliver(response_packet);
+                ServerLog.trace("SENT PACKET OF TYPE ", response_packet.packet_type, " TO ", this.client_name);
+            }
+            finally
+            {
+                this.mutex.unlock();
+            }
+        }
+        catch(Exception exception)
+        {
+            exception.printStackTrace();
+        }
+    }
+    private Packet onValidationRequest(Packet packet_data) throws Exception
+    {
+        //Username already claimed by someone else. Route the packet back.
+        if(!this.server.claimUsername(this, packet_data.data)) return this.encodePacket("Account with username [" + packet_data.data + "] already exists. Please choose another name.", Packet.PacketType.VALIDATION_DENIED);
 
-                    //If there is a mismatch between names, then we are definitely on the DoDClient socket handler.
+        //Broadcast the packet.
+        Packet response_packet = this.encodePacket("Say hi to [" + packet_data.data + "], everyone!", Packet.PacketType.BROADCAST);
+        this.client_name = packet_data.data;
+        this.server.broadcast(response_packet, this.client_ID);
 
-                    //Check if we are the DoDClient SocketHandler.
-                    if(!this.client_name.equals(packet_data.sender_name))
-                    {
-                        //If we are dod client socket, then we need to send the packet to the client socker handler.
-                        this.server.send(packet_data, packet_data.sender_name);
-                        return;
-                    }
-                    response_packet = packet_data;
-                    //Now we are on the client. Disable the in game.
-                    if(packet_data.packet_type == Packet.PacketType.DOD_GAME_OVER)
-                    {
-                        this.do_not_disturb_mode = false;
-                    }
-                    break;
-                }
-                case("MESSAGE"):
-                {
-                    //Check the message for sensored words.
+        //Let the client know that validation has also been granted.
+        response_packet.packet_type = Packet.PacketType.VALIDATION_GRANTED;
+        if(packet_data.sender_type == SenderType.DODCLIENT)
+        {
+            this.do_not_disturb_mode = true;
+            this.server.registerDoDBackend(this);
+        }
+        return response_packet;
+    }
+    private Packet onDoDConnectGranted(Packet packet_data) throws Exception
+    {
+        //DoD Client has granted a join request.
 
-                    String sensored_string = Utility.sensorWords(packet_data.data, server.getBannedWords());
-                    //The message will be broadcasted to everyone who is not in game.
-                    response_packet = new Packet(this.client_name, sensored_string, Packet.PacketType.BROADCAST, SenderType.SERVER);
+        //Check if we are on the client socket handler by comparing the names.
+        if(!this.client_name.equals(packet_data.sender_name))
+        {
+            //Broadcast the grant to everyone.
+            this.server.broadcast(new Packet("Server", "[" + packet_data.sender_name + "] has joined a DoD match. Wish the brave warrior luck!", Packet.PacketType.BROADCAST, SenderType.SERVER),this.client_ID);
 
-                    if(!this.do_not_disturb_mode) this.server.broadcast(response_packet, this.client_ID);
-                    //Check if the string is a join request.
-                    if(sensored_string.equals("JOIN"))
-                    {
-                        //Send a connect request to a dod client.
-                        Packet dod_join_request = new Packet(this.client_name, "", Packet.PacketType.DOD_CONNECT_REQUEST, SenderType.SERVER);
-                        this.server.send(dod_join_request, this.server.getDoDClientID());
-                        this.do_not_disturb_mode = true;
-                        return;
-                    }
+            //Then we need to forward this message to the client.
+            this.server.send(packet_data, packet_data.sender_name);
+            return null;
+        }
+        //The client endpoint has now received the packet
+        //Send to client.
+        return packet_data;
+    }
+    private Packet onDoDGameOver(Packet packet_data) throws Exception
+    {
+        if(!this.client_name.equals(packet_data.sender_name))
+        {
+            //If we are dod client socket, then we need to send the packet to the client socker handler.
+            this.server.send(packet_data, packet_data.sender_name);
+            this.server.broadcast(new Packet(this.client_name, "[" + packet_data.sender_name + "] is back from the Dungeons of Doom! Bring out the champagne!", Packet.PacketType.BROADCAST, SenderType.SERVER), -1);
+            return null;
+        }
+        //Now we are on the client. Disable the in game, and let the backend be reassigned next time.
+        this.do_not_disturb_mode = false;
+        this.server.releaseDoDSession(this.client_name);
+        return packet_data;
+    }
+    private Packet onDoDGameMessage(Packet packet_data)
+    {
+        //If there is a mismatch between names, then we are definitely on the DoDClient socket handler.
+        if(!this.client_name.equals(packet_data.sender_name))
+        {
+            //If we are dod client socket, then we need to send the packet to the client socker handler.
+            this.server.send(packet_data, packet_data.sender_name);
+            return null;
+        }
+        return packet_data;
+    }
+    private Packet onMessage(Packet packet_data) throws Exception
+    {
+        //Check the message for sensored words.
 
+        String sensored_string = Utility.sensorWords(packet_data.data, server.getBannedWords());
+        //The message will be broadcasted to everyone who is not in game.
+        Packet response_packet = new Packet(this.client_name, sensored_string, Packet.PacketType.BROADCAST, SenderType.SERVER);
 
-                    if(this.do_not_disturb_mode)
-                    {
-                        //Forward the message to dod client.
-                        packet_data.packet_type = Packet.PacketType.DOD_USER_MESSAGE;
-                        this.server.send(packet_data, server.getDoDClientID());
-                        return;
-                    }
-                    if(sensored_string.equals("EXIT"))
-                    {
-                        this.server.removeClient(this.client_ID, false);
-                        return;
-                    }
-                    //Message received while in DoD game.
-                    //The user has said a banned word.
-                    if(!sensored_string.equals(packet_data.data))
-                    {
-                        packet_data.data = sensored_string;
-                        //Increase the strike count.
-                        ++this.strikes;
-                        //User is now banned.
-                        if(this.strikes == Server.strike_threshold)
-                        {
-                            //Broadcast the kick.
-                            this.server.broadcast(new Packet("Server", this.client_name + " has been kicked from the server for cursing too much.", Packet.PacketType.BROADCAST, SenderType.SERVER), -1);
-                            this.server.removeClient(this.client_ID, true);
-                            return;
-                        }
-                        else
-                        {
-                            response_packet = this.encodePacket("Cursing is not permitted on this server. You have been warned and have " + (Server.strike_threshold - this.strikes) + " strikes remaining before you are permanently banned.", Packet.PacketType.WARNING);
-                        }
-                    }
-                    if(packet_data.sender_type == SenderType.BOTCLIENT) return;
-                    break;
-                }
-                case("DISCONNECT_GRANTED"):
-                {
-                    response_packet = packet_data;
-                    break;
-                }
+        if(!this.do_not_disturb_mode) this.server.broadcast(response_packet, this.client_ID);
+        //Check if the string is a join request.
+        if(sensored_string.equals("JOIN"))
+        {
+            //Send a connect request to the dod client this user hashes to.
+            int dod_backend_ID = this.server.assignDoDBackend(this.client_name);
+            if(dod_backend_ID == -1) return this.encodePacket("The Dungeons of Doom are closed right now. Please try again later.", Packet.PacketType.WARNING);
+            Packet dod_join_request = new Packet(this.client_name, "", Packet.PacketType.DOD_CONNECT_REQUEST, SenderType.SERVER);
+            this.server.send(dod_join_request, dod_backend_ID);
+            this.do_not_disturb_mode = true;
+            return null;
+        }
 
-                default:
-                    throw new IllegalStateException("Unexpected value: " + packet_type.toString());
+        if(this.do_not_disturb_mode)
+        {
+            //Forward the message to the dod client hosting this user's game.
+            int dod_backend_ID = this.server.getDoDBackend(this.client_name);
+            if(dod_backend_ID != -1)
+            {
+                packet_data.packet_type = Packet.PacketType.DOD_USER_MESSAGE;
+                this.server.send(packet_data, dod_backend_ID);
+                return null;
             }
-            this.output_stream.writeObject(response_packet);
-            this.output_stream.flush();
-            Utility.print("[" + (new Date()).toString() +"]: SENT PACKET OF TYPE " + response_packet.packet_type.toString() + " TO " + this.client_name);
+            //The backend went away before the game ended.
+            this.do_not_disturb_mode = false;
+            return this.encodePacket("Your Dungeons of Doom game has ended. Returning to server...", Packet.PacketType.WARNING);
         }
-        catch(Exception exception)
+        if(sensored_string.equals("EXIT"))
         {
-            exception.printStackTrace();
+            this.server.removeClient(this.client_ID, false);
+            return null;
         }
-        finally{
-
-            this.mutex.unlock();
+        //Message received while in DoD game.
+        //The user has said a banned word.
+        if(!sensored_string.equals(packet_data.data))
+        {
+            packet_data.data = sensored_string;
+            //Increase the strike count.
+            ++this.strikes;
+            //User is now banned.
+            if(this.strikes == Server.strike_threshold)
+            {
+                //Broadcast the kick.
+                this.server.broadcast(new Packet("Server", this.client_name + " has been kicked from the server for cursing too much.", Packet.PacketType.BROADCAST, SenderType.SERVER), -1);
+                this.server.removeClient(this.client_ID, true);
+                return null;
+            }
+            response_packet = this.encodePacket("Cursing is not permitted on this server. You have been warned and have " + (Server.strike_threshold - this.strikes) + " strikes remaining before you are permanently banned.", Packet.PacketType.WARNING);
         }
+        if(packet_data.sender_type == SenderType.BOTCLIENT) return null;
+        return response_packet;
     }
     public int getClientID()
     {
@@ -245,6 +268,12 @@ public final class SocketHandler extends Thread
     public void terminate()
     {
         this.running = false;
+        //Anything already queued (e.g. the goodbye) is still written before the connection closes.
+        this.outbound_queue.close();
+    }
+    public boolean isRunning()
+    {
+        return this.running;
     }
     public String getClientName()
     {
@@ -253,6 +282,6 @@ public final class SocketHandler extends Thread
     }
     public InetSocketAddress getClientConfig()
     {
-        return new InetSocketAddress(this.socket.getInetAddress(), this.socket.getPort());
+        return this.transport.getRemoteAddress();
     }
 }
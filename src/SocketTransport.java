@@ -0,0 +1,85 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Executor;
+
+//Blocking transport used by the thread per connection and virtual thread server modes.
+//Reads happen on the SocketHandler's own thread; writes on a separate writer task so a full socket only stalls this client.
+public final class SocketTransport implements PacketTransport
+{
+    private final Socket socket;
+    private final DataInputStream input_stream;
+    private final DataOutputStream output_stream;
+    private final PacketEncoder packet_encoder;
+    private final Executor writer_executor;
+
+    public SocketTransport(Socket socket, Executor writer_executor) throws Exception
+    {
+        this.socket = socket;
+        this.input_stream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output_stream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.packet_encoder = new PacketEncoder();
+        this.writer_executor = writer_executor;
+    }
+    @Override
+    public void startWriter(OutboundQueue outbound_queue)
+    {
+        this.writer_executor.execute(() ->
+        {
+            try
+            {
+                OutboundFrame frame;
+                while((frame = outbound_queue.take()) != null)
+                {
+                    //Write everything already queued, then flush once.
+                    do
+                    {
+                        this.output_stream.write(frame.getBytes(this.packet_encoder.getVersion()));
+                    }
+                    while((frame = outbound_queue.poll()) != null);
+                    this.output_stream.flush();
+                }
+            }
+            catch(Exception e)
+            {
+                if(this.isOpen()) e.printStackTrace();
+            }
+            this.close();
+        });
+    }
+    @Override
+    public void wakeWriter()
+    {
+        //The writer blocks on the queue itself.
+    }
+    @Override
+    public Packet receive() throws Exception
+    {
+        return this.packet_encoder.read(this.input_stream);
+    }
+    @Override
+    public void close()
+    {
+        try { this.socket.close(); }
+        catch(Exception e) { e.printStackTrace(); }
+    }
+    @Override
+    public void abandon()
+    {
+        //Closing the socket unblocks both the writer and the handler's read. The handler's thread does the removal.
+        this.close();
+    }
+    @Override
+    public boolean isOpen()
+    {
+        return !this.socket.isClosed();
+    }
+    @Override
+    public InetSocketAddress getRemoteAddress()
+    {
+        return new InetSocketAddress(this.socket.getInetAddress(), this.socket.getPort());
+    }
+}
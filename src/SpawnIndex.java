@@ -0,0 +1,93 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Description : The spawnable cells of one game which no player currently stands on.
+ * The free cells are kept packed at the front of an array, with the slot of each cell recorded alongside, so that drawing a
+ * random free cell, taking a cell when a player steps onto it and returning it when the player leaves are all constant time.
+ * Spawning therefore never retries, and only fails when every spawnable cell is taken.
+ */
+public final class SpawnIndex {
+    /**
+     * Description : Marks a cell which is not currently in the free set.
+     */
+    private static final int ABSENT = -1;
+    /**
+     * Description : The free spawnable cells in slots [0, n_free), as row-major cell indices.
+     */
+    private final int[] free_cells;
+    private int n_free;
+    /**
+     * Description : The slot of each map cell within free_cells, or ABSENT. Non-spawnable cells are always absent.
+     */
+    private final int[] slots;
+    /**
+     * Description : Whether each map cell is spawnable at all, so that cells can be returned when they are vacated.
+     */
+    private final boolean[] spawnable;
+    private final int width;
+
+    /**
+     * Description : Creates an index in which every spawnable cell is free.
+     *
+     * @param spawn_cells The row-major cell index of every spawnable tile.
+     * @param width       The width of the map.
+     * @param height      The height of the map.
+     */
+    public SpawnIndex(int[] spawn_cells, int width, int height) {
+        this.width = width;
+        this.free_cells = Arrays.copyOf(spawn_cells, spawn_cells.length);
+        this.n_free = spawn_cells.length;
+        this.slots = new int[width * height];
+        Arrays.fill(this.slots, ABSENT);
+        this.spawnable = new boolean[width * height];
+        for (int slot = 0; slot < this.n_free; ++slot) {
+            this.slots[this.free_cells[slot]] = slot;
+            this.spawnable[this.free_cells[slot]] = true;
+        }
+    }
+
+    /**
+     * Description : Draws a free spawnable cell uniformly at random. The cell stays free until a player is placed on it.
+     *
+     * @return The position of the cell, or null if no spawnable cell is free.
+     */
+    public Vector2 RandomFreePosition() {
+        if (this.n_free == 0) return null;
+        final int cell = this.free_cells[ThreadLocalRandom.current().nextInt(this.n_free)];
+        return new Vector2(cell % this.width, cell / this.width);
+    }
+
+    /**
+     * @return The number of free spawnable cells.
+     */
+    public int GetFreeCount() {
+        return this.n_free;
+    }
+
+    /**
+     * Description : Removes a cell from the free set, when a player steps onto it. Cells which are not free are ignored.
+     *
+     * @param cell The row-major cell index.
+     */
+    public void Take(int cell) {
+        final int slot = this.slots[cell];
+        if (slot == ABSENT) return;
+        //Explanation : Move the last free cell into the vacated slot, so that the free cells stay packed.
+        final int last = this.free_cells[--this.n_free];
+        this.free_cells[slot] = last;
+        this.slots[last] = slot;
+        this.slots[cell] = ABSENT;
+    }
+
+    /**
+     * Description : Returns a cell to the free set, when the last player standing on it leaves. Non-spawnable cells are ignored.
+     *
+     * @param cell The row-major cell index.
+     */
+    public void Release(int cell) {
+        if (!this.spawnable[cell] || this.slots[cell] != ABSENT) return;
+        this.free_cells[this.n_free] = cell;
+        this.slots[cell] = this.n_free++;
+    }
+};
@@ -1,3 +1,4 @@
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -40,6 +41,40 @@ public final class Utility {
         return (int) (Math.random() * upper_bound) + 1;
     }
 
+    /**
+     * Description : Scrambles a 64 bit value, using the finaliser of SplitMix64, so that nearby inputs such as consecutive rounds give unrelated outputs.
+     *
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    public static long Mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Description : Hashes a run of bytes to 64 bits, using FNV-1a followed by Mix64, so that nearby inputs such as similar names or addresses give unrelated hashes.
+     *
+     * @param bytes The bytes to hash.
+     * @return The hash.
+     */
+    public static long Hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        return Mix64(hash);
+    }
+
+    /**
+     * Description : Hashes the UTF-8 bytes of a string to 64 bits. Unlike String.hashCode, the whole 64 bits are usable.
+     *
+     * @param key The string to hash.
+     * @return The hash.
+     */
+    public static long Hash(String key) {
+        return Hash(key.getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Description : Returns the Euclidean distance between two points.
      *
@@ -79,10 +114,10 @@ public final class Utility {
      * @return The cardinal direction as a result of the conversion.
      */
     public static char VectorToCardinal(Vector2 vec) {
-        if (Vector2.Compare(new Vector2(0, -1), vec)) return 'N';
-        else if (Vector2.Compare(new Vector2(1, 0), vec)) return 'E';
-        else if (Vector2.Compare(new Vector2(0, 1), vec)) return 'S';
-        else if (Vector2.Compare(new Vector2(-1, 0), vec)) return 'W';
+        if (vec.x == 0 && vec.y == -1) return 'N';
+        else if (vec.x == 1 && vec.y == 0) return 'E';
+        else if (vec.x == 0 && vec.y == 1) return 'S';
+        else if (vec.x == -1 && vec.y == 0) return 'W';
         return ' ';
     }
 
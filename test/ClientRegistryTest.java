@@ -0,0 +1,81 @@
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Adds clients while other threads keep broadcasting, and checks that every client added is reached by the next broadcast.
+//A snapshot rebuilt concurrently with an add must never be published over the add's invalidation.
+//Run with: java -cp out ClientRegistryTest
+public final class ClientRegistryTest
+{
+    private static final int ROUNDS = 20000;
+    private static final int BROADCASTERS = 4;
+
+    //Keeps the handler's outbound queue so the test can read what was delivered. Nothing touches a socket.
+    private static final class QueueTransport implements PacketTransport
+    {
+        private OutboundQueue outbound_queue;
+        public void startWriter(OutboundQueue outbound_queue) { this.outbound_queue = outbound_queue; }
+        public void wakeWriter() {}
+        public Packet receive() { return null; }
+        public void close() {}
+        public void abandon() {}
+        public boolean isOpen() { return true; }
+        public InetSocketAddress getRemoteAddress() { return new InetSocketAddress(0); }
+        //Drains the queue, returning true if the given frame was among the frames queued.
+        public boolean received(OutboundFrame frame)
+        {
+            boolean found = false;
+            for(OutboundFrame queued = this.outbound_queue.poll(); queued != null; queued = this.outbound_queue.poll())
+            {
+                if(queued == frame) found = true;
+            }
+            return found;
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Server server = new Server(new ArrayList<String>());
+        ClientRegistry registry = new ClientRegistry();
+        AtomicBoolean running = new AtomicBoolean(true);
+        //Walk the snapshot the way Server.broadcast does, as fast as they can, so snapshots are rebuilt while clients are added.
+        //They only look at each recipient, so no queue fills up behind the broadcast under test.
+        Thread[] broadcasters = new Thread[BROADCASTERS];
+        for(int i = 0; i < BROADCASTERS; ++i)
+        {
+            broadcasters[i] = new Thread(() ->
+            {
+                while(running.get())
+                {
+                    for(SocketHandler handler : registry.snapshot()) handler.isinDoNotDisturbMode();
+                }
+            });
+            broadcasters[i].start();
+        }
+        int missed = 0;
+        try
+        {
+            for(int client_ID = 1; client_ID <= ROUNDS; ++client_ID)
+            {
+                QueueTransport transport = new QueueTransport();
+                SocketHandler handler = new SocketHandler(server, transport, client_ID, new Packet("Server", "Welcome", Packet.PacketType.CONNECT_GRANTED, SenderType.SERVER));
+                registry.add(handler);
+                //A broadcast started after add returns has to reach the new client.
+                OutboundFrame frame = new OutboundFrame(new Packet("Server", "hello " + client_ID, Packet.PacketType.BROADCAST, SenderType.SERVER));
+                for(SocketHandler recipient : registry.snapshot())
+                {
+                    if(recipient == handler) recipient.deliver(frame);
+                }
+                if(!transport.received(frame)) ++missed;
+                registry.remove(handler);
+            }
+        }
+        finally
+        {
+            running.set(false);
+            for(Thread broadcaster : broadcasters) broadcaster.join();
+        }
+        if(missed > 0) throw new AssertionError(missed + " of " + ROUNDS + " new clients missed a broadcast.");
+        System.out.println("ClientRegistryTest passed: " + ROUNDS + " clients added while broadcasting, none missed.");
+    }
+}
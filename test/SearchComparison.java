@@ -0,0 +1,144 @@
+import java.util.Random;
+
+//Compares AStarSearch with GreedyEuclideanSearch on large_example_map.txt: how many turns, moves and looks each takes to reach
+//a target standing still within a few tiles, and how long a decision takes. The tree has no benchmark framework, so this is a plain timing loop.
+//Run from the repository root with: java -cp out SearchComparison [trials]
+public final class SearchComparison
+{
+    private static final String MAP = "src/large_example_map.txt";
+    private static final Vector2 VISION = new Vector2(5, 5);
+    private static final int MAX_TURNS = 400;
+    private static final int MAX_START_DISTANCE = 8;
+
+    private static final class Result
+    {
+        int reached;
+        long turns;
+        long moves;
+        long looks;
+        long decisions;
+        long decision_ns;
+    }
+
+    public static void main(String[] args)
+    {
+        final int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+        MapManager map_manager = LoadMap();
+        Random random = new Random(2026);
+        //Each trial runs both searches from the same start toward the same target.
+        Result greedy = new Result();
+        Result a_star = new Result();
+        //Warm up both, so neither pays for compilation in the measured trials.
+        for(int i = 0; i < 200; ++i)
+        {
+            int[] trial = RandomTrial(map_manager, random);
+            Chase(map_manager, new GreedyEuclideanSearch('P'), trial, random, new Result());
+            Chase(map_manager, new AStarSearch('P'), trial, random, new Result());
+        }
+        for(int i = 0; i < trials; ++i)
+        {
+            int[] trial = RandomTrial(map_manager, random);
+            Chase(map_manager, new GreedyEuclideanSearch('P'), trial, random, greedy);
+            Chase(map_manager, new AStarSearch('P'), trial, random, a_star);
+        }
+        Report("GreedyEuclideanSearch", greedy, trials);
+        Report("AStarSearch", a_star, trials);
+    }
+
+    private static MapManager LoadMap()
+    {
+        MapManager map_manager = new MapManager();
+        //The same parameters Game registers.
+        map_manager.RegisterParameter("name", true, null, Utility.IsEmptyString());
+        map_manager.RegisterParameter("win", true, null, (String arg) -> true);
+        map_manager.RegisterParameter("default_tile", false, "#", Utility.IsEmptyString());
+        map_manager.RegisterParameter("wall_tile", false, "#", Utility.IsEmptyString());
+        map_manager.RegisterParameter("fill_tile", false, ".", Utility.IsEmptyString());
+        map_manager.RegisterParameter("spawnable_tiles", false, "E.", Utility.IsEmptyString());
+        map_manager.RegisterParameter("gold_tile", false, "G", (String arg) -> arg.length() != 1);
+        map_manager.RegisterParameter("exit_tile", false, "E", (String arg) -> arg.length() != 1);
+        if(!map_manager.ReadMap(MAP, false)) throw new IllegalStateException("Could not read " + MAP + ". Run from the repository root.");
+        return map_manager;
+    }
+
+    //Returns {enemy x, enemy y, target x, target y}, both on floor tiles and at most MAX_START_DISTANCE apart in either axis.
+    private static int[] RandomTrial(MapManager map_manager, Random random)
+    {
+        while(true)
+        {
+            int enemy_x = random.nextInt(map_manager.GetWidth());
+            int enemy_y = random.nextInt(map_manager.GetHeight());
+            int target_x = enemy_x + random.nextInt(2 * MAX_START_DISTANCE + 1) - MAX_START_DISTANCE;
+            int target_y = enemy_y + random.nextInt(2 * MAX_START_DISTANCE + 1) - MAX_START_DISTANCE;
+            if(!IsFloor(map_manager, enemy_x, enemy_y) || !IsFloor(map_manager, target_x, target_y)) continue;
+            if(enemy_x == target_x && enemy_y == target_y) continue;
+            return new int[]{enemy_x, enemy_y, target_x, target_y};
+        }
+    }
+
+    private static boolean IsFloor(MapManager map_manager, int x, int y)
+    {
+        return map_manager.Contains(x, y) && map_manager.GetTraversableTiles().indexOf(map_manager.GetTile(x, y)) != -1;
+    }
+
+    //Plays one enemy against a target that stands still, the way Game applies LOOK and MOVE.
+    private static void Chase(MapManager map_manager, SearchAlgorithm search, int[] trial, Random random, Result result)
+    {
+        int x = trial[0];
+        int y = trial[1];
+        final int target_x = trial[2];
+        final int target_y = trial[3];
+        MapSubset vision = map_manager.CreateMapSubset(VISION);
+        Look(map_manager, search, vision, x, y, target_x, target_y);
+        for(int turn = 1; turn <= MAX_TURNS; ++turn)
+        {
+            search.SeedDecision(random.nextLong());
+            long start = System.nanoTime();
+            int action = search.Decide(x, y);
+            result.decision_ns += System.nanoTime() - start;
+            ++result.decisions;
+            ++result.turns;
+            if(BotAction.Opcode(action) == BotAction.LOOK)
+            {
+                ++result.looks;
+                Look(map_manager, search, vision, x, y, target_x, target_y);
+            }
+            else if(BotAction.Opcode(action) == BotAction.MOVE)
+            {
+                ++result.moves;
+                int next_x = x + BotAction.DirectionX(BotAction.Direction(action));
+                int next_y = y + BotAction.DirectionY(BotAction.Direction(action));
+                if(map_manager.Contains(next_x, next_y) && map_manager.GetNonTraversableTiles().indexOf(map_manager.GetTile(next_x, next_y)) == -1)
+                {
+                    x = next_x;
+                    y = next_y;
+                }
+            }
+            if(x == target_x && y == target_y)
+            {
+                ++result.reached;
+                return;
+            }
+        }
+    }
+
+    private static void Look(MapManager map_manager, SearchAlgorithm search, MapSubset vision, int x, int y, int target_x, int target_y)
+    {
+        map_manager.FillMapSubset(vision, x, y);
+        int local_x = target_x - vision.subset_world_top_left.x;
+        int local_y = target_y - vision.subset_world_top_left.y;
+        if(vision.Contains(local_x, local_y)) vision.SetTile(local_x, local_y, 'P');
+        search.UpdateMapSubset(vision);
+    }
+
+    private static void Report(String name, Result result, int trials)
+    {
+        System.out.printf("%-22s reached %5.1f%%  turns %7.1f  moves %7.1f  looks %7.1f  %6.0f ns/decision%n",
+                name,
+                100.0 * result.reached / trials,
+                (double)result.turns / trials,
+                (double)result.moves / trials,
+                (double)result.looks / trials,
+                (double)result.decision_ns / result.decisions);
+    }
+}
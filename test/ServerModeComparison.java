@@ -0,0 +1,175 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Runs the server in each ServerMode as a child process and measures, over real sockets:
+//how long it takes to connect and validate every client, how many threads the server process holds with them connected,
+//and how fast chat fans out from one sender to everyone else. It also reports whether VIRTUAL_THREADS really got
+//virtual threads or fell back to platform threads because the JVM has none.
+//Run with the compiled classes on the class path: java -cp out:test-out ServerModeComparison [clients] [messages] [first port]
+public final class ServerModeComparison
+{
+    private static final String PREFIX = "bench-";
+    private static final String FALLBACK_WARNING = "Virtual threads are not available";
+
+    public static void main(String[] args) throws Exception
+    {
+        final int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        final int messages = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+        int port = (args.length > 2) ? Integer.parseInt(args[2]) : 47100;
+        System.out.println("java " + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors() + " cpu(s), " + clients + " clients, " + messages + " messages");
+        for(ServerMode mode : ServerMode.values())
+        {
+            measure(mode, port++, clients, messages);
+        }
+    }
+
+    private static void measure(ServerMode mode, int port, int clients, int messages) throws Exception
+    {
+        //A queue large enough that DROP_CHAT never drops a frame, so every delivery is counted.
+        ProcessBuilder builder = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "Server", mode.name(), "DROP_CHAT", Integer.toString(4 * messages + 1024), "0");
+        builder.redirectErrorStream(true);
+        Process server = builder.start();
+        StringBuffer server_output = new StringBuffer();
+        Thread drain = new Thread(() ->
+        {
+            try(BufferedReader reader = new BufferedReader(new InputStreamReader(server.getInputStream())))
+            {
+                String line;
+                while((line = reader.readLine()) != null) server_output.append(line).append('\n');
+            }
+            catch(IOException e) {}
+        });
+        drain.setDaemon(true);
+        drain.start();
+        try(Writer console = new OutputStreamWriter(server.getOutputStream()))
+        {
+            console.write(port + "\n127.0.0.1\n");
+        }
+
+        ArrayList<Socket> sockets = new ArrayList<>();
+        try
+        {
+            final AtomicLong delivered = new AtomicLong();
+            final CountDownLatch validated = new CountDownLatch(clients);
+            final CountDownLatch finished = new CountDownLatch(clients - 1);
+            PacketEncoder sender_encoder = null;
+            DataOutputStream sender_output = null;
+
+            long connect_start = 0;
+            for(int i = 0; i < clients; ++i)
+            {
+                Socket socket = (i == 0) ? waitForServer(port) : new Socket("127.0.0.1", port);
+                sockets.add(socket);
+                PacketEncoder encoder = new PacketEncoder();
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                encoder.negotiate(encoder.read(input).codec_version);
+                encoder.write(output, new Packet("Guest", "client" + i, Packet.PacketType.VALIDATION_REQUEST, SenderType.HUMANCLIENT));
+                final boolean is_sender = (i == 0);
+                if(is_sender)
+                {
+                    sender_encoder = encoder;
+                    sender_output = output;
+                }
+                Thread reader = new Thread(() -> read(encoder, input, is_sender, messages, validated, finished, delivered));
+                reader.setDaemon(true);
+                reader.start();
+                //The first client waits out the start-up dialogue, so the clock starts once it is in.
+                if(is_sender)
+                {
+                    while(validated.getCount() == clients) Thread.sleep(10);
+                    connect_start = System.nanoTime();
+                }
+            }
+            if(!validated.await(60, TimeUnit.SECONDS)) throw new IllegalStateException(mode + ": only " + (clients - validated.getCount()) + " of " + clients + " clients were validated.");
+            long connect_ns = System.nanoTime() - connect_start;
+            String threads = serverThreads(server);
+
+            long send_start = System.nanoTime();
+            for(int i = 0; i < messages; ++i)
+            {
+                sender_encoder.write(sender_output, new Packet("client0", PREFIX + i, Packet.PacketType.MESSAGE, SenderType.HUMANCLIENT));
+            }
+            boolean complete = finished.await(120, TimeUnit.SECONDS);
+            long send_ns = System.nanoTime() - send_start;
+
+            long expected = (long)messages * (clients - 1);
+            String virtual_threads = (mode != ServerMode.VIRTUAL_THREADS) ? "" : server_output.indexOf(FALLBACK_WARNING) != -1 ? "  (fell back to platform threads)" : "  (virtual threads)";
+            System.out.printf("%-21s connect+validate %7.1f ms  server threads %5s  fan-out %6d/%d frames in %7.1f ms = %9.0f frames/s%s%s%n",
+                    mode,
+                    connect_ns / 1e6,
+                    threads,
+                    delivered.get(),
+                    expected,
+                    send_ns / 1e6,
+                    delivered.get() / (send_ns / 1e9),
+                    complete ? "" : "  INCOMPLETE",
+                    virtual_threads);
+        }
+        finally
+        {
+            for(Socket socket : sockets)
+            {
+                try { socket.close(); }
+                catch(IOException e) {}
+            }
+            server.destroyForcibly();
+            server.waitFor();
+        }
+    }
+
+    //The server reads its port from the console after it starts, so keep retrying until the port is bound.
+    private static Socket waitForServer(int port) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 30000;
+        while(true)
+        {
+            try { return new Socket("127.0.0.1", port); }
+            catch(IOException e)
+            {
+                if(System.currentTimeMillis() > deadline) throw new IllegalStateException("The server never listened on port " + port + ".");
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static void read(PacketEncoder encoder, DataInputStream input, boolean is_sender, int messages, CountDownLatch validated, CountDownLatch finished, AtomicLong delivered)
+    {
+        int received = 0;
+        try
+        {
+            while(true)
+            {
+                Packet packet = encoder.read(input);
+                if(packet.packet_type == Packet.PacketType.VALIDATION_GRANTED) validated.countDown();
+                else if(!is_sender && packet.packet_type == Packet.PacketType.BROADCAST && packet.data != null && packet.data.startsWith(PREFIX))
+                {
+                    delivered.incrementAndGet();
+                    if(++received == messages) finished.countDown();
+                }
+            }
+        }
+        catch(Exception e) {}
+    }
+
+    //Linux only; the count of native threads is what separates the modes.
+    private static String serverThreads(Process server)
+    {
+        try
+        {
+            for(String line : Files.readAllLines(Paths.get("/proc", Long.toString(server.pid()), "status")))
+            {
+                if(line.startsWith("Threads:")) return line.substring("Threads:".length()).trim();
+            }
+        }
+        catch(IOException e) {}
+        return "n/a";
+    }
+}